@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.benchmark;
+
+import eu.devoncrawford.pathfindingvisualization.APathfinding;
+import eu.devoncrawford.pathfindingvisualization.entity.SearchResult;
+import eu.devoncrawford.pathfindingvisualization.search.Algorithm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures one complete search with APathfinding.solve for every scenario,
+ * grid size and search mode: A* with each neighbourhood, bidirectional A*,
+ * JPS, JPS+, HPA*, LPA* or ARA*. Reports ops/s and s/op, run with
+ * "-prof gc" for the allocation rate and pick scenarios with e.g.
+ * "-p scenario=MAZE".
+ *
+ * LPA* keeps its costs from one search to the next and the map does not
+ * change in between, so it measures how fast it confirms they are current.
+ *
+ * @author Devon Crawford
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PathfindingBenchmark {
+
+    public enum SearchMode {
+        DIAGONAL, ORTHOGONAL, TRIG, BIDIRECTIONAL, JPS, JPS_PLUS, HPA, LPA, ARA
+    }
+
+    @Param({"EMPTY", "RANDOM_20", "RANDOM_30", "RANDOM_40", "MAZE", "SPIRAL", "NO_PATH"})
+    private Scenario scenario;
+
+    @Param({"64", "256", "512"})
+    private int size;
+
+    @Param({"DIAGONAL", "ORTHOGONAL", "TRIG", "BIDIRECTIONAL", "JPS", "JPS_PLUS", "HPA", "LPA", "ARA"})
+    private SearchMode mode;
+
+    private APathfinding pathfinding;
+    private int[] ends;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        pathfinding = new APathfinding(size, size);
+        if (mode == SearchMode.BIDIRECTIONAL) {
+            pathfinding.setAlgorithm(Algorithm.BIDIRECTIONAL);
+        } else if (mode == SearchMode.JPS) {
+            pathfinding.setAlgorithm(Algorithm.JPS);
+        } else if (mode == SearchMode.JPS_PLUS) {
+            pathfinding.setAlgorithm(Algorithm.JPS_PLUS);
+        } else if (mode == SearchMode.HPA) {
+            pathfinding.setAlgorithm(Algorithm.HPA);
+        } else if (mode == SearchMode.LPA) {
+            pathfinding.setAlgorithm(Algorithm.LPA);
+        } else if (mode == SearchMode.ARA) {
+            pathfinding.setAlgorithm(Algorithm.ARA);
+        }
+        // Only the A* modes named after a neighbourhood move straight
+        pathfinding.setDiagonal(mode != SearchMode.ORTHOGONAL && mode != SearchMode.TRIG);
+        pathfinding.setTrig(mode == SearchMode.TRIG);
+        ends = scenario.build(pathfinding, size);
+
+        // The JPS+ table, the HPA* cluster distances and the LPA* costs are
+        // built by the first search, keep them out of the measurement
+        solve();
+    }
+
+    @Benchmark
+    public SearchResult solve() {
+        return pathfinding.solve(ends[0], ends[1], ends[2], ends[3]);
+    }
+}
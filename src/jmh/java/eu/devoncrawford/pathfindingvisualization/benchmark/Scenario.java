@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.benchmark;
+
+import eu.devoncrawford.pathfindingvisualization.APathfinding;
+import eu.devoncrawford.pathfindingvisualization.entity.Node;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * Maps used by the benchmarks. Every scenario draws its borders onto a
+ * size x size grid and returns the start and end cells. The random maps use
+ * a fixed seed so every run measures the same map.
+ *
+ * @author Devon Crawford
+ */
+public enum Scenario {
+    EMPTY, RANDOM_20, RANDOM_30, RANDOM_40, MAZE, SPIRAL, NO_PATH;
+
+    /**
+     * Draws the scenario onto the borders of pathfinding.
+     *
+     * @return start x, start y, end x and end y
+     */
+    public int[] build(APathfinding pathfinding, int size) {
+        pathfinding.setGridSize(size, size);
+        int last = size - 1;
+
+        switch (this) {
+            case RANDOM_20:
+                return random(pathfinding, size, 20);
+            case RANDOM_30:
+                return random(pathfinding, size, 30);
+            case RANDOM_40:
+                return random(pathfinding, size, 40);
+            case MAZE:
+                return maze(pathfinding, size);
+            case SPIRAL:
+                return spiral(pathfinding, size);
+            case NO_PATH:
+                // End in the bottom right corner, boxed in by three borders
+                pathfinding.addBorder(new Node(last - 1, last));
+                pathfinding.addBorder(new Node(last - 1, last - 1));
+                pathfinding.addBorder(new Node(last, last - 1));
+                return new int[]{0, 0, last, last};
+            default:
+                return new int[]{0, 0, last, last};
+        }
+    }
+
+    // Fills percent of the cells with borders, except start and end
+    private static int[] random(APathfinding pathfinding, int size, int percent) {
+        Random random = new Random(size * 31L + percent);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (random.nextInt(100) < percent) {
+                    pathfinding.addBorder(new Node(x, y));
+                }
+            }
+        }
+        pathfinding.removeBorder(new Node(0, 0));
+        pathfinding.removeBorder(new Node(size - 1, size - 1));
+        return new int[]{0, 0, size - 1, size - 1};
+    }
+
+    // Depth first maze, passages on even cells and borders everywhere else
+    private static int[] maze(APathfinding pathfinding, int size) {
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                pathfinding.addBorder(new Node(x, y));
+            }
+        }
+        int cells = (size + 1) / 2;
+        boolean[] visited = new boolean[cells * cells];
+        Random random = new Random(size);
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        int[][] directions = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+        visited[0] = true;
+        pathfinding.removeBorder(new Node(0, 0));
+        stack.push(0);
+        while (!stack.isEmpty()) {
+            int current = stack.peek();
+            int cx = current % cells;
+            int cy = current / cells;
+
+            // Pick a random unvisited neighbour
+            int next = -1, dx = 0, dy = 0, options = 0;
+            for (int[] d : directions) {
+                int nx = cx + d[0];
+                int ny = cy + d[1];
+                if (nx >= 0 && ny >= 0 && nx < cells && ny < cells && !visited[ny * cells + nx]
+                        && random.nextInt(++options) == 0) {
+                    next = ny * cells + nx;
+                    dx = d[0];
+                    dy = d[1];
+                }
+            }
+            if (next == -1) {
+                stack.pop();
+                continue;
+            }
+            visited[next] = true;
+            pathfinding.removeBorder(new Node(cx * 2 + dx, cy * 2 + dy));
+            pathfinding.removeBorder(new Node(cx * 2 + dx * 2, cy * 2 + dy * 2));
+            stack.push(next);
+        }
+        int end = (cells - 1) * 2;
+        return new int[]{0, 0, end, end};
+    }
+
+    // Nested rings with one gap each, alternating between the top left and
+    // bottom right, so the path winds around to the centre
+    private static int[] spiral(APathfinding pathfinding, int size) {
+        int ring = 0;
+        for (int d = 1; d < size / 2 - 1; d += 2, ring++) {
+            int far = size - 1 - d;
+            for (int i = d; i <= far; i++) {
+                pathfinding.addBorder(new Node(i, d));
+                pathfinding.addBorder(new Node(i, far));
+                pathfinding.addBorder(new Node(d, i));
+                pathfinding.addBorder(new Node(far, i));
+            }
+            if (ring % 2 == 0) {
+                pathfinding.removeBorder(new Node(d + 1, d));
+            } else {
+                pathfinding.removeBorder(new Node(far - 1, far));
+            }
+        }
+        int centre = size / 2;
+        pathfinding.removeBorder(new Node(centre, centre));
+        return new int[]{0, 0, centre, centre};
+    }
+}
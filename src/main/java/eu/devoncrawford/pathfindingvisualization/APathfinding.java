@@ -23,87 +23,324 @@
  */
 package eu.devoncrawford.pathfindingvisualization;
 
+import eu.devoncrawford.pathfindingvisualization.entity.CellState;
 import eu.devoncrawford.pathfindingvisualization.entity.Node;
-
+import eu.devoncrawford.pathfindingvisualization.entity.SearchMetrics;
+import eu.devoncrawford.pathfindingvisualization.entity.SearchResult;
+import eu.devoncrawford.pathfindingvisualization.search.Algorithm;
+import eu.devoncrawford.pathfindingvisualization.search.AnytimeSearch;
+import eu.devoncrawford.pathfindingvisualization.search.ClusterGraph;
+import eu.devoncrawford.pathfindingvisualization.search.IncrementalSearch;
+import eu.devoncrawford.pathfindingvisualization.search.IndexedHeap;
+import eu.devoncrawford.pathfindingvisualization.search.JumpTable;
+import eu.devoncrawford.pathfindingvisualization.search.PathCache;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.BitSet;
 
 /**
- * this is the pathfinding algorithm class
+ * this is the pathfinding algorithm class. It works on a grid of
+ * width x height cells, all nodes are given in cell coordinates and nothing in
+ * here depends on the graphics, so it can be used without a window through
+ * {@link #solve(int, int, int, int)}
+ *
+ * The search keeps the G cost, H cost and parent of every cell in int arrays
+ * indexed by cell id (y * width + x), F is always G + H. No Node is created
+ * while searching, the Node lists given out are built on demand for the
+ * graphics.
  *
  * @author Devon Crawford
  */
 public class APathfinding {
 
-    private int size, diagonalMoveCost;
+    // Cost of a straight and a diagonal step between two cells
+    public static final int MOVE_COST = 10;
+    public static final int DIAGONAL_MOVE_COST = 14;
+    // Width and height of an HPA* cluster in cells
+    public static final int CLUSTER_SIZE = 16;
+
+    // Counts the bytes each thread allocates, null where the JVM can not
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private int width, height;
     private long runTime;
-    private double kValue;
-    private Frame frame;
-    private Node startNode, endNode, par;
+    private final double kValue = Math.PI / 2;
+    private Node startNode, endNode;
+    private int startId, endId, par;
     private boolean noPath;
     
+    private Algorithm algorithm = Algorithm.ASTAR;
     private boolean diagonal = true;
     private boolean trig = false;
     private boolean running = false;
     private boolean complete = false;
 
-    private final ArrayList<Node> borders = new ArrayList<>();
-    private final ArrayList<Node> open = new ArrayList<>();
-    private final ArrayList<Node> closed = new ArrayList<>();
-    private final ArrayList<Node> path = new ArrayList<>();
-
-    public APathfinding(int size) {
-        this.size = size;
-
-        diagonalMoveCost = (int) (Math.sqrt(2) * size);
-        kValue = Math.PI / 2;
+    // Set from another thread to end a full run early, see cancel
+    private volatile boolean cancelled;
+
+    // Cell ids of the final path from start to end, both included, and the
+    // same cells as a set
+    private int[] path = new int[0];
+    private final BitSet pathCells = new BitSet();
+
+    // Cells whose state changed since takeChangedCells was last called
+    private BitSet changedCells = new BitSet();
+
+    // Borders and closed nodes by cell id
+    private BitSet borders = new BitSet();
+    private final BitSet closedCells = new BitSet();
+
+    // Open list, a heap of cell ids ordered by F cost (ties on H cost)
+    private IndexedHeap open = new IndexedHeap(0);
+
+    // Costs and parent of every cell, only valid for open and closed cells
+    private int[] gCost = new int[0];
+    private int[] hCost = new int[0];
+    private int[] parents = new int[0];
+
+    // The search from the end node in bidirectional mode, H costs are
+    // towards the start node. Both open lists of this mode are ordered by
+    // balanced keys, see balancedKey
+    private final BitSet backClosed = new BitSet();
+    private IndexedHeap backOpen = new IndexedHeap(0);
+    private int[] backG = new int[0];
+    private int[] backH = new int[0];
+    private int[] backParents = new int[0];
+
+    // Cheapest path through a cell reached from both sides so far
+    private int meeting = -1;
+    private int meetingCost;
+
+    // Jump distances for JPS+, built on its first search and kept up to
+    // date with every border edit afterwards
+    private JumpTable jumpTable;
+
+    // Clusters for HPA*, built and kept up to date the same way, and built
+    // again when the diagonal setting changes
+    private ClusterGraph clusterGraph;
+
+    // LPA* costs, kept from one run to the next while start, end and the
+    // diagonal setting stay the same, and repaired after border edits
+    private IncrementalSearch incrementalSearch;
+
+    // ARA* search, made new for every search as it depends on start and
+    // end, and what is told about each path it improves on
+    private AnytimeSearch anytimeSearch;
+    private PathListener pathListener;
+
+    // ARA* stops refining after the time budget, the deadline is when the
+    // current search reaches it or 0. The bound is that of the last path
+    private long timeBudget, deadline;
+    private double bound = 1;
+
+    // Bumped by every border edit and grid size change. Results of complete
+    // searches go into the path cache, if one is set, for that version
+    private int mapVersion;
+    private PathCache pathCache;
+
+    // Measurements of the current search, see getMetrics. Phase times, and
+    // the wall time and allocations of a search taken step by step, are
+    // only taken while profiling as they cost a few clock reads per step
+    private boolean profiling;
+    private long wallNanos, stepNanos, generationNanos, openListNanos, reconstructionNanos;
+    private long generated, reopened, allocatedBytes;
+    private int peakOpen;
+
+    // Receives every path ARA* improves on
+    public interface PathListener {
+
+        /**
+         * @param path the cell ids from start to end, both included
+         * @param cost the cost of the path
+         * @param bound the path costs at most bound times the optimal cost
+         */
+        void improved(int[] path, int cost, double bound);
     }
 
-    public APathfinding(Frame frame, int size) {
-        this.frame = frame;
-        this.size = size;
+    public APathfinding(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
 
-        diagonalMoveCost = (int) (Math.sqrt(2) * size);
-        kValue = Math.PI / 2;
+    // Searches on borders shared with other engines, which must not change
+    // while it is in use. Used by BatchSolver for each of its threads
+    APathfinding(int width, int height, BitSet borders, JumpTable jumpTable) {
+        this.width = width;
+        this.height = height;
+        this.borders = borders;
+        this.jumpTable = jumpTable;
     }
 
-    public APathfinding(Frame frame, int size, Node start, Node end) {
-        this.frame = frame;
-        this.size = size;
+    public APathfinding(int width, int height, Node start, Node end) {
+        this.width = width;
+        this.height = height;
         startNode = start;
         endNode = end;
-
-        diagonalMoveCost = (int) (Math.sqrt(2) * size);
     }
 
+    // Runs a complete search, its outcome is read from isComplete, isNoPath,
+    // getPath and getMetrics
     public void start(Node s, Node e) {
-        running = true;
-        startNode = s;
-        startNode.setG(0);
-        endNode = e;
+        run(s, e);
+    }
 
-        // Adding the starting node to the closed list
-        addClosed(startNode);
+    /**
+     * Runs a complete search from (startX, startY) to (endX, endY) on the
+     * current borders, without any graphics.
+     *
+     * @return the outcome of the search
+     */
+    public SearchResult solve(int startX, int startY, int endX, int endY) {
+        reset();
+        run(new Node(startX, startY), new Node(endX, endY));
+
+        int cost = noPath ? -1 : endNode.getG();
+        return new SearchResult(!noPath, width, path, cost, getClosedCount(), runTime);
+    }
 
-        long startTime = System.currentTimeMillis();
+    private void run(Node s, Node e) {
+        setup(s, e);
 
-        findPath(startNode);
+        long startTime = System.nanoTime();
+        long startBytes = threadAllocatedBytes();
 
-        complete = true;
-        long endTime = System.currentTimeMillis();
-        runTime = endTime - startTime;
-        System.out.println("Completed: " + runTime + "ms");
+        SearchResult cached = pathCache == null ? null : pathCache.get(startId, endId, mode(), mapVersion);
+        if (cached != null) {
+            restore(cached);
+        }
+
+        // step does one expansion per call, so the stack stays flat no
+        // matter how many nodes get expanded
+        while (running && !cancelled) {
+            step();
+        }
+        if (cancelled) {
+            running = false;
+            return;
+        }
+
+        complete = !noPath;
+        wallNanos = System.nanoTime() - startTime;
+        runTime = wallNanos / 1000000;
+        if (THREADS != null) {
+            allocatedBytes = threadAllocatedBytes() - startBytes;
+        }
+
+        // An ARA* path cut short by the time budget may not be optimal
+        if (pathCache != null && cached == null && bound <= 1) {
+            int cost = noPath ? -1 : endNode.getG();
+            pathCache.put(startId, endId, mode(), mapVersion,
+                    new SearchResult(!noPath, width, path, cost, getClosedCount(), runTime));
+        }
+    }
+
+    // Takes the path from a cached result instead of searching
+    private void restore(SearchResult cached) {
+        open.clear();
+        backOpen.clear();
+        closedCells.clear();
+        running = false;
+        noPath = !cached.isFound();
+        if (cached.isFound()) {
+            path = cached.getPath();
+            pathChanged();
+            pathCosts();
+            endNode.setG(cached.getCost());
+        }
+    }
+
+    // Search settings that can change the path, part of the cache key
+    private int mode() {
+        return algorithm.ordinal() << 2 | (diagonal ? 2 : 0) | (trig ? 1 : 0);
     }
 
     public void setup(Node s, Node e) {
+        if (!inGrid(s.getX(), s.getY()) || !inGrid(e.getX(), e.getY())) {
+            throw new IllegalArgumentException("start and end must be inside the grid");
+        }
+        prepare();
+        resetMetrics();
+        deadline = timeBudget > 0 ? System.nanoTime() + timeBudget : 0;
+        // Dropped before the early returns below, or the open list of the
+        // last ARA* search would still be shown
+        anytimeSearch = null;
+        bound = 1;
         running = true;
         startNode = s;
         startNode.setG(0);
-        par = startNode;
         endNode = e;
+        startId = id(s.getX(), s.getY());
+        endId = id(e.getX(), e.getY());
+        par = startId;
 
         // Adding the starting node to the closed list
-        addClosed(startNode);
+        gCost[startId] = 0;
+        hCost[startId] = heuristic(s.getX(), s.getY());
+        parents[startId] = -1;
+        closedCells.set(startId);
+
+        // With start and end on the same cell every algorithm gives the
+        // same one cell path, without searching
+        if (startId == endId) {
+            running = false;
+            complete = true;
+            path = new int[] {startId};
+            pathChanged();
+            endNode.setG(0);
+            return;
+        }
+        // No path can start or end on a border, whichever side a search
+        // starts from
+        if (borders.get(startId) || borders.get(endId)) {
+            running = false;
+            noPath = true;
+            return;
+        }
+
+        if (algorithm == Algorithm.JPS_PLUS && jumpTable == null) {
+            jumpTable = new JumpTable(width, height, borders);
+        }
+        if (algorithm == Algorithm.HPA && (clusterGraph == null || clusterGraph.isDiagonal() != diagonal)) {
+            clusterGraph = new ClusterGraph(width, height, borders, CLUSTER_SIZE, diagonal);
+        }
+        if (algorithm == Algorithm.LPA
+                && (incrementalSearch == null || !incrementalSearch.matches(startId, endId, diagonal))) {
+            incrementalSearch = new IncrementalSearch(width, height, borders, startId, endId, diagonal);
+        }
+        if (algorithm == Algorithm.ARA) {
+            anytimeSearch = new AnytimeSearch(width, height, borders, startId, endId, diagonal,
+                    AnytimeSearch.DEFAULT_WEIGHT);
+        }
+
+        if (algorithm == Algorithm.BIDIRECTIONAL) {
+            // Both sides start with their node on the open list instead
+            closedCells.clear(startId);
+            open.push(startId, balancedKey(startId, true));
+            backG[endId] = 0;
+            backH[endId] = heuristic(e.getX(), e.getY(), startId);
+            backParents[endId] = -1;
+            backOpen.push(endId, balancedKey(endId, false));
+            meeting = -1;
+            meetingCost = Integer.MAX_VALUE;
+        }
+    }
+
+    // Sizes the open list and cost arrays to the grid
+    private void prepare() {
+        if (open.capacity() != width * height) {
+            open = new IndexedHeap(width * height);
+            gCost = new int[width * height];
+            hCost = new int[width * height];
+            parents = new int[width * height];
+        }
+        if (algorithm == Algorithm.BIDIRECTIONAL && backOpen.capacity() != width * height) {
+            backOpen = new IndexedHeap(width * height);
+            backG = new int[width * height];
+            backH = new int[width * height];
+            backParents = new int[width * height];
+        }
     }
 
     public void setStart(Node s) {
@@ -131,14 +368,23 @@ public class APathfinding {
         return endNode;
     }
 
+    // The node that will be expanded by the next step
     public Node getPar() {
-        return par;
+        return node(par);
     }
 
     public boolean isNoPath() {
         return noPath;
     }
 
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(Algorithm a) {
+        algorithm = a;
+    }
+
     public boolean isDiagonal() {
         return diagonal;
     }
@@ -155,38 +401,137 @@ public class APathfinding {
         trig = t;
     }
 
-    public void setSize(int s) {
-        size = s;
-        diagonalMoveCost = (int) (Math.sqrt(2) * size);
+    public int getWidth() {
+        return width;
+    }
+
+    public int getMapVersion() {
+        return mapVersion;
+    }
+
+    public PathCache getPathCache() {
+        return pathCache;
+    }
+
+    // Caches the results of start and solve, null turns caching off
+    public void setPathCache(PathCache cache) {
+        pathCache = cache;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Replaces the grid size and all borders at once, for maps loaded from
+     * a file. The BitSet is taken over, not copied.
+     */
+    public void setBorders(int w, int h, BitSet b) {
+        reset();
+        b.clear(w * h, Math.max(b.length(), w * h));
+        width = w;
+        height = h;
+        borders = b;
+        jumpTable = null;
+        clusterGraph = null;
+        incrementalSearch = null;
+        anytimeSearch = null;
+        mapVersion++;
+    }
+
+    // Changes the grid size, borders outside of the new size are dropped
+    public void setGridSize(int w, int h) {
+        if (w != width) {
+            BitSet moved = new BitSet(w * h);
+            for (int i = borders.nextSetBit(0); i >= 0; i = borders.nextSetBit(i + 1)) {
+                int x = i % width;
+                int y = i / width;
+                if (x < w && y < h) {
+                    moved.set(y * w + x);
+                }
+            }
+            borders = moved;
+        } else if (h < height) {
+            borders.clear(w * h, width * height);
+        }
+        if (w != width || h != height) {
+            jumpTable = null;
+            clusterGraph = null;
+            incrementalSearch = null;
+            anytimeSearch = null;
+            mapVersion++;
+        }
+        width = w;
+        height = h;
     }
 
-    public void findPath(Node parent) {
-        Node openNode = null;
+    // Does one step of the search, timed while profiling
+    public void step() {
+        if (!profiling) {
+            advance();
+        } else {
+            long startBytes = threadAllocatedBytes();
+            long start = System.nanoTime();
+            advance();
+            long time = System.nanoTime() - start;
+            stepNanos += time;
+            wallNanos += time;
+            if (THREADS != null) {
+                allocatedBytes += threadAllocatedBytes() - startBytes;
+            }
+        }
+        peakOpen = Math.max(peakOpen, getOpenCount());
+    }
 
-        if (diagonal) {
+    // Opens the neighbours of the current parent and picks the next parent,
+    // which is expanded on the next call
+    private void advance() {
+        if (algorithm == Algorithm.HPA) {
+            searchClusters();
+            return;
+        }
+        if (algorithm == Algorithm.BIDIRECTIONAL) {
+            bidirectionalStep();
+            return;
+        }
+        if (algorithm == Algorithm.LPA) {
+            replan();
+            return;
+        }
+        if (algorithm == Algorithm.ARA) {
+            refine();
+            return;
+        }
+        int parent = par;
+        int parentX = parent % width;
+        int parentY = parent / width;
+        long generationStart = profiling ? System.nanoTime() : 0;
+
+        if (algorithm == Algorithm.JPS) {
+            // Opens the jump points reachable from parent
+            jumpSuccessors(parent);
+        } else if (algorithm == Algorithm.JPS_PLUS) {
+            // Same, with the jumps looked up in the table
+            tableSuccessors(parent);
+        } else if (diagonal) {
             // Detects and adds one step of nodes to open list
             for (int i = 0; i < 3; i++) {
                 for (int j = 0; j < 3; j++) {
                     if (i == 1 && j == 1) {
                         continue;
                     }
-                    int possibleX = (parent.getX() - size) + (size * i);
-                    int possibleY = (parent.getY() - size) + (size * j);
-
-                    // Possible coordinates of borders
-                    // Using (crossBorderX, parent.getY())
-                    // and (parent.getX(), crossBorderY())
-                    // To see if there are borders in the way
-                    int crossBorderX = parent.getX() + (possibleX - parent.getX());
-                    int crossBorderY = parent.getY() + (possibleY - parent.getY());
-
-                    // Disables ability to cut corners around borders
-                    if (searchBorder(crossBorderX, parent.getY()) != -1
-                            | searchBorder(parent.getX(), crossBorderY) != -1 && ((j == 0 | j == 2) && i != 1)) {
+                    int possibleX = parentX - 1 + i;
+                    int possibleY = parentY - 1 + j;
+
+                    // Disables ability to cut corners around borders, using
+                    // (possibleX, parentY) and (parentX, possibleY) to see
+                    // if there are borders in the way
+                    if (searchBorder(possibleX, parentY) != -1
+                            | searchBorder(parentX, possibleY) != -1 && ((j == 0 | j == 2) && i != 1)) {
                         continue;
                     }
 
-                    calculateNodeValues(possibleX, possibleY, openNode, parent);
+                    calculateNodeValues(possibleX, possibleY, parent);
                 }
             }
         } else if (!trig) {
@@ -197,319 +542,1027 @@ public class APathfinding {
                             || (i == 2 && j == 2)) {
                         continue;
                     }
-                    int possibleX = (parent.getX() - size) + (size * i);
-                    int possibleY = (parent.getY() - size) + (size * j);
+                    int possibleX = parentX - 1 + i;
+                    int possibleY = parentY - 1 + j;
 
-                    calculateNodeValues(possibleX, possibleY, openNode, parent);
+                    calculateNodeValues(possibleX, possibleY, parent);
                 }
             }
         } else {
             for (int i = 0; i < 4; i++) {
                 // Uses cosine and sine functions to get circle of points
                 // around parent
-                int possibleX = (int) Math.round(parent.getX() + (-size * Math.cos(kValue * i)));
-                int possibleY = (int) Math.round(parent.getY() + (-size * Math.sin(kValue * i)));
+                int possibleX = (int) Math.round(parentX - Math.cos(kValue * i));
+                int possibleY = (int) Math.round(parentY - Math.sin(kValue * i));
 
-                calculateNodeValues(possibleX, possibleY, openNode, parent);
+                calculateNodeValues(possibleX, possibleY, parent);
             }
         }
-        // frame.repaint();
+
+        long selectStart = 0;
+        if (profiling) {
+            selectStart = System.nanoTime();
+            generationNanos += selectStart - generationStart;
+        }
 
         // Set the new parent node
         parent = lowestFCost();
 
-        if (parent == null) {
-            System.out.println("END> NO PATH");
+        if (parent == -1) {
             noPath = true;
             running = false;
-            frame.repaint();
             return;
         }
 
-        if (parent.equals(endNode)) {
-            endNode.setParent(parent.getParent());
+        if (parent == endId) {
+            endNode.setG(gCost[parent]);
 
             connectPath();
             running = false;
             complete = true;
-            frame.repaint();
             return;
         }
 
-        // Remove parent node from open list
-        removeOpen(parent);
-        
-        // Add parent node to closed list
-        addClosed(parent);
+        // Move parent node from the open list to the closed list
+        open.pop();
+        if (profiling) {
+            openListNanos += System.nanoTime() - selectStart;
+        }
+        closedCells.set(parent);
+        changedCells.set(parent);
+        parentX = parent % width;
+        parentY = parent / width;
 
         // Allows correction for shortest path during runtime
         // When new parent Node is selected.. Checks all adjacent open
         // Nodes.. Then checks if the (G Score of parent + open Node
         // distance from parent) is less than the current G score
         // of the open node.. If true.. Sets parent of open Node
-        // as new parent.. and re-calculates G, and F values
-        if (diagonal) {
+        // as new parent.. and lowers its key in the open list
+        if (diagonal && algorithm == Algorithm.ASTAR) {
             for (int i = 0; i < 3; i++) {
                 for (int j = 0; j < 3; j++) {
                     if (i == 1 && j == 1) {
                         continue;
                     }
-                    int possibleX = (parent.getX() - size) + (size * i);
-                    int possibleY = (parent.getY() - size) + (size * j);
-                    Node openCheck = getOpenNode(possibleX, possibleY);
+                    int openCheck = searchOpen(parentX - 1 + i, parentY - 1 + j);
 
                     // If spot being looked at, is an open node
-                    if (openCheck != null) {
-                        int distanceX = parent.getX() - openCheck.getX();
-                        int distanceY = parent.getY() - openCheck.getY();
-                        int newG = parent.getG();
+                    if (openCheck != -1) {
+                        int newG = gCost[parent];
 
-                        if (distanceX != 0 && distanceY != 0) {
-                            newG += diagonalMoveCost;
+                        if (i != 1 && j != 1) {
+                            newG += DIAGONAL_MOVE_COST;
                         } else {
-                            newG += size;
+                            newG += MOVE_COST;
                         }
 
-                        if (newG < openCheck.getG()) {
-                            int s = searchOpen(possibleX, possibleY);
-                            open.get(s).setParent(parent);
-                            open.get(s).setG(newG);
-                            open.get(s).setF(open.get(s).getG() + open.get(s).getH());
+                        if (newG < gCost[openCheck]) {
+                            parents[openCheck] = parent;
+                            gCost[openCheck] = newG;
+                            open.decreaseKey(openCheck, openKey(openCheck));
+                            reopened++;
+                            changedCells.set(openCheck);
                         }
                     }
                 }
             }
         }
-        if (!frame.showSteps()) {
-            findPath(parent);
-        } else {
-            par = parent;
-        }
+        par = parent;
     }
 
-    private void calculateNodeValues(int possibleX, int possibleY, Node openNode, Node parent) {
+    private void calculateNodeValues(int possibleX, int possibleY, int parent) {
         // If the coordinates are outside of the borders
-        if (possibleX < 0 | possibleY < 0 | possibleX >= frame.getWidth() | possibleY >= frame.getHeight()) {
+        if (possibleX < 0 | possibleY < 0 | possibleX >= width | possibleY >= height) {
             return;
         }
 
         // If the node is already a border node or a closed node or an
         // already open node, then don't make open node
-        if (searchBorder(possibleX, possibleY) != -1 | searchClosed(possibleX, possibleY) != -1
-                | searchOpen(possibleX, possibleY) != -1) {
+        int id = id(possibleX, possibleY);
+        if (borders.get(id) | closedCells.get(id) | open.contains(id)) {
             return;
         }
-        // Create an open node with the available x and y
-        // coordinates
-        openNode = new Node(possibleX, possibleY);
 
         // Set the parent of the open node
-        openNode.setParent(parent);
+        parents[id] = parent;
 
         // Calculating G cost
         // Cost to move from parent node to one open node (x
         // and
         // y
         // separately)
-        int GxMoveCost = openNode.getX() - parent.getX();
-        int GyMoveCost = openNode.getY() - parent.getY();
-        int gCost = parent.getG();
+        int GxMoveCost = possibleX - parent % width;
+        int GyMoveCost = possibleY - parent / width;
+        int g = gCost[parent];
 
         if (GxMoveCost != 0 && GyMoveCost != 0) {
-            gCost += diagonalMoveCost;
+            g += DIAGONAL_MOVE_COST;
         } else {
-            gCost += size;
+            g += MOVE_COST;
         }
-        openNode.setG(gCost);
+        gCost[id] = g;
 
         // Calculating H Cost
-        int HxDiff = Math.abs(endNode.getX() - openNode.getX());
-        int HyDiff = Math.abs(endNode.getY() - openNode.getY());
-        int hCost = HxDiff + HyDiff;
-        openNode.setH(hCost);
+        hCost[id] = heuristic(possibleX, possibleY);
 
-        // Calculating F Cost
-        int fCost = gCost + hCost;
-        openNode.setF(fCost);
+        // F Cost is G + H, which orders the open list
+        open.push(id, openKey(id));
+        generated++;
+        changedCells.set(id);
+    }
 
-        addOpen(openNode);
+    // Manhattan distance to the end node, the other algorithms use the
+    // octile distance which never overestimates with diagonal moves
+    private int heuristic(int x, int y) {
+        return heuristic(x, y, endId);
     }
 
-    private void connectPath() {
-        if (path.isEmpty()) {
-            Node parentNode = endNode.getParent();
+    private int heuristic(int x, int y, int target) {
+        int HxDiff = Math.abs(target % width - x);
+        int HyDiff = Math.abs(target / width - y);
+        if (algorithm != Algorithm.ASTAR) {
+            return octile(HxDiff, HyDiff);
+        }
+        return (HxDiff + HyDiff) * MOVE_COST;
+    }
 
-            while (!parentNode.equals(startNode)) {
-                addPath(parentNode);
+    // Cost of the shortest move over dx, dy cells on an open grid
+    private static int octile(int dx, int dy) {
+        return DIAGONAL_MOVE_COST * Math.min(dx, dy) + MOVE_COST * Math.abs(dx - dy);
+    }
 
-                for (Node current : closed) {
-                    if (current.equals(parentNode)) {
-                        parentNode = current.getParent();
-                        break;
+    // Opens every jump point reachable from parent. Only the directions
+    // that can lead to a shorter path than going through the grandparent
+    // are followed
+    private void jumpSuccessors(int parent) {
+        int x = parent % width;
+        int y = parent / width;
+
+        if (parents[parent] == -1) {
+            // The start node looks in all directions
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if ((dx != 0 | dy != 0) && canMove(x, y, dx, dy)) {
+                        openJumpPoint(jump(x + dx, y + dy, dx, dy), parent);
                     }
                 }
             }
-            reverse(getPathList());
+            return;
         }
+        int dx = Integer.signum(x - parents[parent] % width);
+        int dy = Integer.signum(y - parents[parent] / width);
+
+        if (dx != 0 && dy != 0) {
+            boolean vertical = walkable(x, y + dy);
+            boolean horizontal = walkable(x + dx, y);
+            if (vertical) {
+                openJumpPoint(jump(x, y + dy, 0, dy), parent);
+            }
+            if (horizontal) {
+                openJumpPoint(jump(x + dx, y, dx, 0), parent);
+            }
+            if (vertical && horizontal) {
+                openJumpPoint(jump(x + dx, y + dy, dx, dy), parent);
+            }
+        } else if (dx != 0) {
+            boolean up = walkable(x, y - 1);
+            boolean down = walkable(x, y + 1);
+            if (walkable(x + dx, y)) {
+                openJumpPoint(jump(x + dx, y, dx, 0), parent);
+                if (up) {
+                    openJumpPoint(jump(x + dx, y - 1, dx, -1), parent);
+                }
+                if (down) {
+                    openJumpPoint(jump(x + dx, y + 1, dx, 1), parent);
+                }
+            }
+            if (up) {
+                openJumpPoint(jump(x, y - 1, 0, -1), parent);
+            }
+            if (down) {
+                openJumpPoint(jump(x, y + 1, 0, 1), parent);
+            }
+        } else {
+            boolean left = walkable(x - 1, y);
+            boolean right = walkable(x + 1, y);
+            if (walkable(x, y + dy)) {
+                openJumpPoint(jump(x, y + dy, 0, dy), parent);
+                if (left) {
+                    openJumpPoint(jump(x - 1, y + dy, -1, dy), parent);
+                }
+                if (right) {
+                    openJumpPoint(jump(x + 1, y + dy, 1, dy), parent);
+                }
+            }
+            if (left) {
+                openJumpPoint(jump(x - 1, y, -1, 0), parent);
+            }
+            if (right) {
+                openJumpPoint(jump(x + 1, y, 1, 0), parent);
+            }
+        }
+    }
 
+    // Walks from (x, y) in direction (dx, dy) until it reaches the end, a
+    // cell with a forced neighbour or a border. Returns the jump point's cell
+    // id or -1. Diagonal walks stop where a straight walk finds a jump point
+    private int jump(int x, int y, int dx, int dy) {
+        while (walkable(x, y)) {
+            int id = id(x, y);
+            if (id == endId) {
+                return id;
+            }
+
+            if (dx != 0 && dy != 0) {
+                if (jump(x + dx, y, dx, 0) != -1 || jump(x, y + dy, 0, dy) != -1) {
+                    return id;
+                }
+            } else if (dx != 0) {
+                // A border behind a free cell above or below forces a turn
+                if (walkable(x, y - 1) && !walkable(x - dx, y - 1)
+                        || walkable(x, y + 1) && !walkable(x - dx, y + 1)) {
+                    return id;
+                }
+            } else if (walkable(x - 1, y) && !walkable(x - 1, y - dy)
+                    || walkable(x + 1, y) && !walkable(x + 1, y - dy)) {
+                return id;
+            }
+
+            // Corners can not be cut, so both sides must be free
+            if (!walkable(x + dx, y) || !walkable(x, y + dy)) {
+                return -1;
+            }
+            x += dx;
+            y += dy;
+        }
+        return -1;
     }
 
-    public void addBorder(Node node) {
-        if (borders.isEmpty()) {
-            borders.add(node);
-        } else if (!checkBorderDuplicate(node)) {
-            borders.add(node);
+    // Opens the jump points reachable from parent using the jump table. The
+    // end node is opened when it lies within a straight jump, or when a
+    // diagonal jump passes the row or column of the end node
+    private void tableSuccessors(int parent) {
+        int x = parent % width;
+        int y = parent / width;
+        int endX = endId % width;
+        int endY = endId / width;
+
+        // Directions to try: all from the start, otherwise the travel
+        // direction plus its neighbours (and the perpendicular ones when
+        // travelling straight)
+        int first = 0, last = 7;
+        if (parents[parent] != -1) {
+            int dir = direction(Integer.signum(x - parents[parent] % width), Integer.signum(y - parents[parent] / width));
+            int spread = dir % 2 == 0 ? 2 : 1;
+            first = dir - spread;
+            last = dir + spread;
+        }
+
+        for (int i = first; i <= last; i++) {
+            int dir = i & 7;
+            int dx = JumpTable.DX[dir];
+            int dy = JumpTable.DY[dir];
+            int distance = jumpTable.get(parent, dir);
+            int reach = Math.abs(distance);
+            int colDiff = Math.abs(endX - x);
+            int rowDiff = Math.abs(endY - y);
+            int steps = -1;
+
+            if (dir % 2 == 0) {
+                if (Integer.signum(endX - x) == dx && Integer.signum(endY - y) == dy
+                        && Math.max(colDiff, rowDiff) <= reach) {
+                    steps = Math.max(colDiff, rowDiff);
+                }
+            } else if (Integer.signum(endX - x) == dx && Integer.signum(endY - y) == dy
+                    && Math.min(colDiff, rowDiff) <= reach) {
+                steps = Math.min(colDiff, rowDiff);
+            }
+            if (steps == -1 && distance > 0) {
+                steps = distance;
+            }
+            if (steps > 0) {
+                openJumpPoint(id(x + dx * steps, y + dy * steps), parent);
+            }
+        }
+    }
+
+    // Index of a direction in JumpTable.DX and DY
+    private static int direction(int dx, int dy) {
+        for (int dir = 0; dir < 8; dir++) {
+            if (JumpTable.DX[dir] == dx && JumpTable.DY[dir] == dy) {
+                return dir;
+            }
+        }
+        return -1;
+    }
+
+    // Opens a jump point or lowers its cost if it is already open
+    private void openJumpPoint(int id, int parent) {
+        if (id == -1 || closedCells.get(id)) {
+            return;
+        }
+        int x = id % width;
+        int y = id / width;
+        int g = gCost[parent] + octile(Math.abs(x - parent % width), Math.abs(y - parent / width));
+
+        if (open.contains(id)) {
+            if (g < gCost[id]) {
+                parents[id] = parent;
+                gCost[id] = g;
+                open.decreaseKey(id, openKey(id));
+                reopened++;
+                changedCells.set(id);
+            }
+            return;
         }
+        parents[id] = parent;
+        gCost[id] = g;
+        hCost[id] = heuristic(x, y);
+        open.push(id, openKey(id));
+        generated++;
+        changedCells.set(id);
+    }
+
+    // Whether a single step from (x, y) in direction (dx, dy) is allowed
+    private boolean canMove(int x, int y, int dx, int dy) {
+        return walkable(x + dx, y + dy) && walkable(x + dx, y) && walkable(x, y + dy);
+    }
+
+    private boolean walkable(int x, int y) {
+        return inGrid(x, y) && !borders.get(id(x, y));
     }
 
-    public void addOpen(Node node) {
-        if (open.isEmpty()) {
-            open.add(node);
-        } else if (!checkOpenDuplicate(node)) {
-            open.add(node);
+    // Walks the parent ids back from the end node, once to count the path
+    // and once to fill it in from the end. Parents more than one cell apart
+    // (jump points) are joined by a straight or diagonal line of cells
+    private void connectPath() {
+        long start = System.nanoTime();
+        int length = 1;
+        for (int parentNode = endId; parentNode != startId; parentNode = parents[parentNode]) {
+            length += distance(parentNode, parents[parentNode]);
+        }
+
+        path = new int[length];
+        int i = length - 1;
+        for (int parentNode = endId; parentNode != startId; parentNode = parents[parentNode]) {
+            int x = parentNode % width;
+            int y = parentNode / width;
+            int next = parents[parentNode];
+            int dx = Integer.signum(next % width - x);
+            int dy = Integer.signum(next / width - y);
+            int stepCost = dx != 0 && dy != 0 ? DIAGONAL_MOVE_COST : MOVE_COST;
+            int g = gCost[parentNode];
+            for (int step = distance(parentNode, next); step > 0; step--) {
+                // Cells skipped by a jump get their costs along the path
+                int id = id(x, y);
+                gCost[id] = g;
+                hCost[id] = heuristic(x, y);
+                path[i--] = id;
+                x += dx;
+                y += dy;
+                g -= stepCost;
+            }
         }
+        path[0] = startId;
+        pathChanged();
+        reconstructionNanos += System.nanoTime() - start;
     }
 
-    public void addClosed(Node node) {
-        if (closed.isEmpty()) {
-            closed.add(node);
-        } else if (!checkClosedDuplicate(node)) {
-            closed.add(node);
+    // Updates the set of path cells after path was replaced
+    private void pathChanged() {
+        pathCells.clear();
+        for (int id : path) {
+            pathCells.set(id);
+            changedCells.set(id);
         }
     }
 
-    public void addPath(Node node) {
-        if (path.isEmpty()) {
-            path.add(node);
+    // HPA* answers the whole query in one step. The abstract nodes it
+    // expanded are shown as closed
+    private void searchClusters() {
+        int[] found = clusterGraph.findPath(startId, endId);
+        for (int cell : clusterGraph.getExpanded()) {
+            closedCells.set(cell);
+            changedCells.set(cell);
+        }
+        generated = clusterGraph.getGenerated();
+        running = false;
+        if (found == null) {
+            noPath = true;
+            return;
+        }
+
+        path = found;
+        pathChanged();
+        endNode.setG(pathCosts());
+        complete = true;
+    }
+
+    // LPA* brings its kept costs up to date in one step. The cells it
+    // repaired are shown as closed, which after a small border edit are
+    // only a few
+    private void replan() {
+        int[] found = incrementalSearch.findPath();
+        BitSet repaired = incrementalSearch.getRepaired();
+        for (int i = repaired.nextSetBit(0); i >= 0; i = repaired.nextSetBit(i + 1)) {
+            closedCells.set(i);
+            changedCells.set(i);
+            gCost[i] = incrementalSearch.getG(i);
+            hCost[i] = incrementalSearch.heuristic(i);
+        }
+        generated = incrementalSearch.getGenerated();
+        running = false;
+        if (found == null) {
+            noPath = true;
+            return;
+        }
+
+        path = found;
+        pathChanged();
+        endNode.setG(pathCosts());
+        complete = true;
+    }
+
+    // ARA* expands one cell per step. Each round it finishes replaces the
+    // path with a better one, which the graphics redraw as it comes. The
+    // search ends once the path is optimal or the time budget is used up
+    private void refine() {
+        boolean roundOver = anytimeSearch.step();
+        for (int c = 0; c < anytimeSearch.getChangedCount(); c++) {
+            int i = anytimeSearch.getChanged(c);
+            if (anytimeSearch.isExpanded(i)) {
+                closedCells.set(i);
+            }
+            changedCells.set(i);
+            gCost[i] = anytimeSearch.getG(i);
+            hCost[i] = anytimeSearch.heuristic(i);
+        }
+        generated = anytimeSearch.getGenerated();
+        reopened = anytimeSearch.getReopened();
+
+        if (roundOver && anytimeSearch.getPath() != null) {
+            // Cells of the old path show what is under them again
+            for (int id : path) {
+                changedCells.set(id);
+            }
+            path = anytimeSearch.getPath();
+            pathChanged();
+            endNode.setG(pathCosts());
+            bound = anytimeSearch.getBound();
+            if (pathListener != null) {
+                pathListener.improved(path, endNode.getG(), bound);
+            }
+        }
+        if (anytimeSearch.isFinished() || deadline != 0 && path.length > 0 && System.nanoTime() - deadline >= 0) {
+            running = false;
+            noPath = path.length == 0;
+            complete = !noPath;
+        }
+    }
+
+    // Fills in the costs along the path for the graphics, returns the cost
+    // of the whole path
+    private int pathCosts() {
+        int g = 0;
+        for (int i = 0; i < path.length; i++) {
+            int id = path[i];
+            if (i > 0) {
+                int previous = path[i - 1];
+                boolean diagonalStep = id % width != previous % width && id / width != previous / width;
+                g += diagonalStep ? DIAGONAL_MOVE_COST : MOVE_COST;
+            }
+            gCost[id] = g;
+            hCost[id] = heuristic(id % width, id / width);
+        }
+        return g;
+    }
+
+    // Expands one node on the side with the smaller open list. The search
+    // is over once the lowest keys of both sides add up to at least the
+    // cheapest path found through a meeting cell, no path through the open
+    // nodes can be cheaper than that sum
+    private void bidirectionalStep() {
+        if (open.isEmpty() || backOpen.isEmpty()
+                || (open.peekKey() >> 32) + (backOpen.peekKey() >> 32) >= 2L * meetingCost) {
+            running = false;
+            if (meeting == -1) {
+                noPath = true;
+                return;
+            }
+            joinPaths();
+            endNode.setG(meetingCost);
+            complete = true;
+            return;
+        }
+
+        if (open.size() <= backOpen.size()) {
+            par = open.pop();
+            closedCells.set(par);
+            changedCells.set(par);
+            expand(par, true);
         } else {
-            path.add(node);
+            int parent = backOpen.pop();
+            backClosed.set(parent);
+            changedCells.set(parent);
+            expand(parent, false);
         }
     }
 
-    public void removePath(int location) {
-        path.remove(location);
+    // Opens or lowers the neighbours of a cell for one side of the
+    // bidirectional search, following the diagonal setting
+    private void expand(int parent, boolean forward) {
+        int[] g = forward ? gCost : backG;
+        int[] h = forward ? hCost : backH;
+        int[] parentIds = forward ? parents : backParents;
+        IndexedHeap side = forward ? open : backOpen;
+        BitSet closed = forward ? closedCells : backClosed;
+        int x = parent % width;
+        int y = parent / width;
+
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                boolean diagonalMove = dx != 0 && dy != 0;
+                if ((dx == 0 && dy == 0) || (diagonalMove && !diagonal) || !canMove(x, y, dx, dy)) {
+                    continue;
+                }
+                int id = id(x + dx, y + dy);
+                if (closed.get(id)) {
+                    continue;
+                }
+                int newG = g[parent] + (diagonalMove ? DIAGONAL_MOVE_COST : MOVE_COST);
+                if (!side.contains(id)) {
+                    g[id] = newG;
+                    h[id] = heuristic(x + dx, y + dy, forward ? endId : startId);
+                    parentIds[id] = parent;
+                    side.push(id, balancedKey(id, forward));
+                    generated++;
+                } else if (newG < g[id]) {
+                    g[id] = newG;
+                    parentIds[id] = parent;
+                    side.decreaseKey(id, balancedKey(id, forward));
+                    reopened++;
+                } else {
+                    continue;
+                }
+                changedCells.set(id);
+
+                // Reached from the other side as well
+                boolean met = forward ? backOpen.contains(id) || backClosed.get(id)
+                        : open.contains(id) || closedCells.get(id);
+                if (met && gCost[id] + backG[id] < meetingCost) {
+                    meetingCost = gCost[id] + backG[id];
+                    meeting = id;
+                }
+            }
+        }
     }
 
-    public void removeBorder(int location) {
-        borders.remove(location);
+    /**
+     * Open list key of a cell for one side of the bidirectional search:
+     * twice its G cost plus the heuristic towards that side's target minus
+     * the one towards its own root. Using the average of both heuristics
+     * keeps the keys of the two sides in balance, so the cost of any path
+     * through a cell is the sum of its keys on both sides (halved), which
+     * is what lets the search stop on the sum of the two lowest keys.
+     */
+    private long balancedKey(int id, boolean forward) {
+        int x = id % width;
+        int y = id / width;
+        int key = forward ? 2 * gCost[id] + hCost[id] - heuristic(x, y, startId)
+                : 2 * backG[id] + backH[id] - heuristic(x, y, endId);
+        return IndexedHeap.key(key, forward ? hCost[id] : backH[id]);
     }
 
-    public void removeBorder(Node node) {
-        borders.remove(node);
+    // Joins the forward parents up to the meeting cell with the backward
+    // parents from it to the end
+    private void joinPaths() {
+        long start = System.nanoTime();
+        int length = 0;
+        for (int id = meeting; id != -1; id = parents[id]) {
+            length++;
+        }
+        for (int id = backParents[meeting]; id != -1; id = backParents[id]) {
+            length++;
+        }
+
+        path = new int[length];
+        int i = 0;
+        for (int id = meeting; id != -1; id = parents[id]) {
+            path[i++] = id;
+        }
+        // The forward half went in from the meeting cell back to the start
+        for (int a = 0, b = i - 1; a < b; a++, b--) {
+            int swap = path[a];
+            path[a] = path[b];
+            path[b] = swap;
+        }
+        for (int id = backParents[meeting]; id != -1; id = backParents[id]) {
+            path[i++] = id;
+        }
+        pathChanged();
+        pathCosts();
+        reconstructionNanos += System.nanoTime() - start;
+    }
+
+    // Number of steps in between two cells on a straight or diagonal line
+    private int distance(int a, int b) {
+        return Math.max(Math.abs(a % width - b % width), Math.abs(a / width - b / width));
+    }
+
+    // Cell id of a node inside the grid
+    private int id(int x, int y) {
+        return y * width + x;
+    }
+
+    private boolean inGrid(int x, int y) {
+        return x >= 0 & y >= 0 & x < width & y < height;
+    }
+
+    // Open list ordering, lowest F cost first then lowest H cost
+    private long openKey(int id) {
+        return IndexedHeap.key(gCost[id] + hCost[id], hCost[id]);
+    }
+
+    // Builds a Node for the graphics from the arrays
+    private Node node(int id) {
+        Node node = new Node(id % width, id / width);
+        node.setG(gCost[id]);
+        node.setH(hCost[id]);
+        node.setF(gCost[id] + hCost[id]);
+        return node;
+    }
+
+    // Same as node, with the costs of the search from the end
+    private Node backNode(int id) {
+        Node node = new Node(id % width, id / width);
+        node.setG(backG[id]);
+        node.setH(backH[id]);
+        node.setF(backG[id] + backH[id]);
+        return node;
     }
 
-    public void removeOpen(int location) {
-        open.remove(location);
+    // Borders outside of the grid are ignored
+    public void addBorder(Node node) {
+        if (inGrid(node.getX(), node.getY()) && !borders.get(id(node.getX(), node.getY()))) {
+            borders.set(id(node.getX(), node.getY()));
+            bordersChanged(id(node.getX(), node.getY()), true);
+        }
     }
 
-    public void removeOpen(Node node) {
-        open.remove(node);
+    // Keeps the JPS+ jump table, the HPA* clusters, the LPA* costs and the
+    // path cache in line with the borders
+    private void bordersChanged(int id, boolean added) {
+        mapVersion++;
+        if (pathCache != null) {
+            pathCache.bordersChanged(id, added, mapVersion);
+        }
+        if (jumpTable != null) {
+            jumpTable.update(id % width, id / width);
+        }
+        if (clusterGraph != null) {
+            clusterGraph.update(id % width, id / width);
+        }
+        if (incrementalSearch != null) {
+            incrementalSearch.update(id);
+        }
     }
 
-    public void removeClosed(int location) {
-        closed.remove(location);
+    // Removes a border by the cell id returned from searchBorder
+    public void removeBorder(int location) {
+        if (borders.get(location)) {
+            borders.clear(location);
+            bordersChanged(location, false);
+        }
+    }
+
+    public void removeBorder(Node node) {
+        if (inGrid(node.getX(), node.getY())) {
+            removeBorder(id(node.getX(), node.getY()));
+        }
     }
 
     public boolean checkBorderDuplicate(Node node) {
-        return borders.indexOf(node) != -1;
+        return searchBorder(node.getX(), node.getY()) != -1;
     }
 
     public boolean checkOpenDuplicate(Node node) {
-        return open.indexOf(node) != -1;
+        return searchOpen(node.getX(), node.getY()) != -1;
     }
 
     public boolean checkClosedDuplicate(Node node) {
-        return closed.indexOf(node) != -1;
+        return searchClosed(node.getX(), node.getY()) != -1;
     }
 
+    // Returns the cell id of a border or -1
     public int searchBorder(int xSearch, int ySearch) {
-        return borders.indexOf(new Node(xSearch, ySearch));
+        if (!inGrid(xSearch, ySearch)) {
+            return -1;
+        }
+        int id = id(xSearch, ySearch);
+        return borders.get(id) ? id : -1;
     }
 
+    // Returns the cell id of a closed node or -1
     public int searchClosed(int xSearch, int ySearch) {
-        return closed.indexOf(new Node(xSearch, ySearch));
+        if (!inGrid(xSearch, ySearch)) {
+            return -1;
+        }
+        int id = id(xSearch, ySearch);
+        return closedCells.get(id) ? id : -1;
     }
 
+    // Returns the cell id of an open node or -1
     public int searchOpen(int xSearch, int ySearch) {
-        return open.indexOf(new Node(xSearch, ySearch));
+        if (!inGrid(xSearch, ySearch)) {
+            return -1;
+        }
+        int id = id(xSearch, ySearch);
+        return open.contains(id) ? id : -1;
     }
 
-    public void reverse(ArrayList<Node> list) {
-        Collections.reverse(list);
+    // Cell id of the open node with the lowest F cost or -1
+    private int lowestFCost() {
+        if (!open.isEmpty()) {
+            return open.peek();
+        }
+        return -1;
     }
 
-    public Node lowestFCost() {
-        if (open.size() > 0) {
-            return open.stream().max(Node::compareTo).get();
+    // Builds a list of all borders
+    public ArrayList<Node> getBorderList() {
+        ArrayList<Node> list = new ArrayList<>(borders.cardinality());
+        for (int i = borders.nextSetBit(0); i >= 0; i = borders.nextSetBit(i + 1)) {
+            list.add(new Node(i % width, i / width));
         }
-        return null;
+        return list;
     }
 
-    public ArrayList<Node> getBorderList() {
-        return borders;
+    // Copy of the borders, by cell id
+    public BitSet copyBorders() {
+        return (BitSet) borders.clone();
+    }
+
+    // Cell id of the first border at or after id, -1 if there is none
+    public int nextBorder(int id) {
+        return borders.nextSetBit(id);
+    }
+
+    public int getBorderCount() {
+        return borders.cardinality();
     }
 
+    // Builds a list of the open nodes in heap order
     public ArrayList<Node> getOpenList() {
-        return open;
+        ArrayList<Node> list = new ArrayList<>(open.size());
+        for (int i = 0; i < open.size(); i++) {
+            list.add(node(open.get(i)));
+        }
+        return list;
     }
 
-    public Node getOpen(int location) {
-        return open.get(location);
+    // Open nodes of both sides in bidirectional mode, or of ARA*
+    public int getOpenCount() {
+        return open.size() + backOpen.size() + (anytimeSearch == null ? 0 : anytimeSearch.getOpenCount());
     }
 
+    // Builds a list of the closed nodes
     public ArrayList<Node> getClosedList() {
-        return closed;
+        ArrayList<Node> list = new ArrayList<>(closedCells.cardinality());
+        for (int i = closedCells.nextSetBit(0); i >= 0; i = closedCells.nextSetBit(i + 1)) {
+            list.add(node(i));
+        }
+        return list;
+    }
+
+    public int getClosedCount() {
+        return closedCells.cardinality() + backClosed.cardinality();
+    }
+
+    // Open nodes of the search from the end in bidirectional mode
+    public ArrayList<Node> getBackOpenList() {
+        ArrayList<Node> list = new ArrayList<>(backOpen.size());
+        for (int i = 0; i < backOpen.size(); i++) {
+            list.add(backNode(backOpen.get(i)));
+        }
+        return list;
+    }
+
+    // Closed nodes of the search from the end in bidirectional mode
+    public ArrayList<Node> getBackClosedList() {
+        ArrayList<Node> list = new ArrayList<>(backClosed.cardinality());
+        for (int i = backClosed.nextSetBit(0); i >= 0; i = backClosed.nextSetBit(i + 1)) {
+            list.add(backNode(i));
+        }
+        return list;
+    }
+
+    /**
+     * What the cell at (x, y) shows, looked up without building any lists
+     * so the graphics can ask for just the cells they redraw.
+     */
+    public CellState getCellState(int x, int y) {
+        int id = id(x, y);
+        if (pathCells.get(id) && id != startId && id != endId) {
+            return CellState.PATH;
+        } else if (backClosed.get(id)) {
+            return CellState.BACK_CLOSED;
+        } else if (id < backOpen.capacity() && backOpen.contains(id)) {
+            return CellState.BACK_OPEN;
+        } else if (anytimeSearch != null && anytimeSearch.isOpen(id)) {
+            // Cells ARA* opens again keep their place on the closed list
+            return CellState.OPEN;
+        } else if (closedCells.get(id)) {
+            return CellState.CLOSED;
+        } else if (id < open.capacity() && open.contains(id)) {
+            return CellState.OPEN;
+        } else if (borders.get(id)) {
+            return CellState.BORDER;
+        }
+        return CellState.EMPTY;
     }
 
+    // Node with the costs the cell at (x, y) shows, for the graphics
+    public Node getCellNode(int x, int y) {
+        CellState state = getCellState(x, y);
+        if (state == CellState.BACK_OPEN || state == CellState.BACK_CLOSED) {
+            return backNode(id(x, y));
+        }
+        return node(id(x, y));
+    }
+
+    /**
+     * The cells whose state changed since the last call, so the graphics
+     * can redraw just those after a step. Starts a new set, the returned
+     * one is not touched again.
+     */
+    public BitSet takeChangedCells() {
+        BitSet changed = changedCells;
+        changedCells = new BitSet();
+        return changed;
+    }
+
+    // Builds a list of the path nodes in between start and end
     public ArrayList<Node> getPathList() {
+        ArrayList<Node> list = new ArrayList<>(getPathCount());
+        for (int i = 1; i < path.length - 1; i++) {
+            list.add(node(path[i]));
+        }
+        return list;
+    }
+
+    // Number of path nodes in between start and end
+    public int getPathCount() {
+        return Math.max(path.length - 2, 0);
+    }
+
+    /**
+     * The final path as cell ids (y * width + x) from start to end, both
+     * included. Empty while no path has been found.
+     *
+     * @return the path cell ids, not a copy
+     */
+    public int[] getPath() {
         return path;
     }
 
+    /**
+     * Makes a full run on another thread stop after its current step,
+     * without a result. Cleared by reset.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
     public long getRunTime() {
         return runTime;
     }
 
-    public void reset() {
-        open.clear();
+    /**
+     * How far the last path can be from the shortest one, it costs at most
+     * this times the optimal cost. Only an ARA* path cut short by the time
+     * budget is above 1.
+     */
+    public double getBound() {
+        return bound;
+    }
+
+    public long getTimeBudget() {
+        return timeBudget;
+    }
 
-        closed.clear();
+    // ARA* stops refining its path once a search has run for nanos, 0 for
+    // no limit. The first path is always searched for to the end
+    public void setTimeBudget(long nanos) {
+        timeBudget = nanos;
+    }
 
-        path.clear();
+    // Told about every path ARA* improves on, on the searching thread
+    public void setPathListener(PathListener l) {
+        pathListener = l;
+    }
 
-        noPath = false;
-        running = false;
-        complete = false;
+    /**
+     * What the last search measured, read once it is over. Without
+     * profiling a full run still has its wall time, counts and allocations,
+     * a search taken step by step only its counts.
+     */
+    public SearchMetrics getMetrics() {
+        long expansionNanos = Math.max(stepNanos - generationNanos - openListNanos - reconstructionNanos, 0);
+        return new SearchMetrics(algorithm.toString(), complete, complete ? endNode.getG() : -1,
+                complete ? pathLength() : -1, wallNanos, expansionNanos, generationNanos, openListNanos,
+                reconstructionNanos, getClosedCount(), generated, reopened, peakOpen, allocatedBytes);
     }
 
-    public Node getOpenNode(int x, int y) {
-        for (Node node : open) {
-            if (node.getX() == x && node.getY() == y) {
-                return node;
+    // Length of the path in cells, from its straight and diagonal steps
+    private double pathLength() {
+        int straight = 0, diagonalSteps = 0;
+        for (int i = 1; i < path.length; i++) {
+            if (path[i] % width != path[i - 1] % width && path[i] / width != path[i - 1] / width) {
+                diagonalSteps++;
+            } else {
+                straight++;
             }
         }
+        return straight + diagonalSteps * Math.sqrt(2);
+    }
+
+    public boolean isProfiling() {
+        return profiling;
+    }
+
+    // Times the phases of every step from the next search on
+    public void setProfiling(boolean p) {
+        profiling = p;
+    }
+
+    private void resetMetrics() {
+        wallNanos = 0;
+        stepNanos = 0;
+        generationNanos = 0;
+        openListNanos = 0;
+        reconstructionNanos = 0;
+        generated = 0;
+        reopened = 0;
+        peakOpen = 0;
+        allocatedBytes = THREADS == null ? -1 : 0;
+    }
 
+    private static com.sun.management.ThreadMXBean threads() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        }
         return null;
     }
 
+    private static long threadAllocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public void reset() {
+        open.clear();
+        backOpen.clear();
+
+        closedCells.clear();
+        backClosed.clear();
+
+        path = new int[0];
+        pathCells.clear();
+        changedCells.clear();
+        anytimeSearch = null;
+        bound = 1;
+
+        noPath = false;
+        running = false;
+        complete = false;
+        cancelled = false;
+    }
+
     public void printBorderList() {
-        for (int i = 0; i < borders.size(); i++) {
-            System.out.print(borders.get(i).getX() + ", " + borders.get(i).getY());
+        for (Node border : getBorderList()) {
+            System.out.print(border.getX() + ", " + border.getY());
             System.out.println();
         }
         System.out.println("===============");
     }
 
     public void printOpenList() {
-        for (int i = 0; i < open.size(); i++) {
-            System.out.print(open.get(i).getX() + ", " + open.get(i).getY());
+        for (Node node : getOpenList()) {
+            System.out.print(node.getX() + ", " + node.getY());
             System.out.println();
         }
         System.out.println("===============");
     }
 
     public void printPathList() {
-        for (int i = 0; i < path.size(); i++) {
-            System.out.print(i + ": " + path.get(i).getX() + ", " + path.get(i).getY() + ": " + path.get(i).getF());
+        for (int i = 0; i < path.length; i++) {
+            Node current = node(path[i]);
+            System.out.print(i + ": " + current.getX() + ", " + current.getY() + ": " + current.getF());
             System.out.println();
         }
         System.out.println("===============");
@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization;
+
+import eu.devoncrawford.pathfindingvisualization.entity.Query;
+import eu.devoncrawford.pathfindingvisualization.entity.SearchMetrics;
+import eu.devoncrawford.pathfindingvisualization.entity.SearchResult;
+import eu.devoncrawford.pathfindingvisualization.search.Algorithm;
+import eu.devoncrawford.pathfindingvisualization.search.JumpTable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * BatchSolver.java runs many searches at once on a copy of the borders taken
+ * when it is created, so later border edits do not affect it. Each search
+ * borrows an APathfinding over that copy from the solver, so its open list
+ * and cost arrays are reused from one query to the next, and there are never
+ * more of them than searches ran at once. They belong to the solver, not to
+ * the pool threads, and go with it. The JPS+ jump table is built once and
+ * shared, HPA* clusters are cached per engine.
+ *
+ * @author Devon Crawford
+ */
+public class BatchSolver {
+
+    private final int width, height;
+    private final BitSet borders;
+    private final Algorithm algorithm;
+    private final boolean diagonal, trig;
+    private final JumpTable jumpTable;
+    private final ForkJoinPool pool;
+
+    // Engines not in use by a search
+    private final ConcurrentLinkedQueue<APathfinding> engines = new ConcurrentLinkedQueue<>();
+
+    // Solves on the common pool
+    public BatchSolver(APathfinding source) {
+        this(source, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Takes a copy of the borders and the search settings of the source.
+     *
+     * @param pool the pool the searches run on
+     */
+    public BatchSolver(APathfinding source, ForkJoinPool pool) {
+        width = source.getWidth();
+        height = source.getHeight();
+        borders = source.copyBorders();
+        algorithm = source.getAlgorithm();
+        diagonal = source.isDiagonal();
+        trig = source.isTrig();
+        jumpTable = algorithm == Algorithm.JPS_PLUS ? new JumpTable(width, height, borders) : null;
+        this.pool = pool;
+    }
+
+    /**
+     * Solves every query, in parallel.
+     *
+     * @return the results, in the order of the queries
+     */
+    public List<SearchResult> solve(List<Query> queries) {
+        SearchResult[] results = new SearchResult[queries.size()];
+        // A parallel stream started inside the pool forks onto that pool
+        pool.submit(() -> IntStream.range(0, results.length).parallel().forEach(i -> {
+            Query query = queries.get(i);
+            APathfinding engine = borrow();
+            results[i] = engine.solve(query.getStartX(), query.getStartY(), query.getEndX(), query.getEndY());
+            engines.offer(engine);
+        })).join();
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Solves every query in parallel like solve, keeping what each search
+     * measured instead of its path.
+     *
+     * @return the metrics, in the order of the queries
+     */
+    public List<SearchMetrics> measure(List<Query> queries) {
+        SearchMetrics[] metrics = new SearchMetrics[queries.size()];
+        pool.submit(() -> IntStream.range(0, metrics.length).parallel().forEach(i -> {
+            Query query = queries.get(i);
+            APathfinding engine = borrow();
+            engine.solve(query.getStartX(), query.getStartY(), query.getEndX(), query.getEndY());
+            metrics[i] = engine.getMetrics();
+            engines.offer(engine);
+        })).join();
+        return Arrays.asList(metrics);
+    }
+
+    // An idle engine, or a new one when all are searching. Handed back with
+    // engines.offer once the search is done
+    private APathfinding borrow() {
+        APathfinding engine = engines.poll();
+        return engine != null ? engine : engine();
+    }
+
+    private APathfinding engine() {
+        APathfinding engine = new APathfinding(width, height, borders, jumpTable);
+        engine.setAlgorithm(algorithm);
+        engine.setDiagonal(diagonal);
+        engine.setTrig(trig);
+        return engine;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization;
+
+import eu.devoncrawford.pathfindingvisualization.entity.Query;
+import eu.devoncrawford.pathfindingvisualization.entity.SearchMetrics;
+import eu.devoncrawford.pathfindingvisualization.io.MapFiles;
+import eu.devoncrawford.pathfindingvisualization.search.Algorithm;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * BenchmarkRunner.java runs the queries of a Moving AI scenario on a map
+ * without opening a window, so it works on machines without a display. Every
+ * chosen algorithm first solves all queries for the warm-up iterations, then
+ * for the measured ones, one after the other or in parallel through a
+ * BatchSolver. Each measured search becomes a CSV row with its latency,
+ * expansion counts and path length, a summary per algorithm goes to the
+ * error stream.
+ *
+ * Usage: --bench map scen [--algorithms A*,JPS+,...] [--warmup n]
+ * [--iterations n] [--parallel] [--no-diagonal] [--out file.csv]
+ *
+ * @author Devon Crawford
+ */
+public class BenchmarkRunner {
+
+    private static final String USAGE = "usage: --bench <map> <scen> [--algorithms A*,JPS+,...] [--warmup n] "
+            + "[--iterations n] [--parallel] [--no-diagonal] [--out file.csv]";
+
+    private static final String CSV_HEADER = "algorithm,iteration,query,startX,startY,endX,endY,found,nanos,"
+            + "expanded,generated,length,optimal";
+
+    private final List<Algorithm> algorithms = new ArrayList<>();
+    private int warmup = 1;
+    private int iterations = 5;
+    private boolean parallel;
+    private boolean diagonal = true;
+    private String map, scenario, out;
+
+    public static void main(String[] args) throws IOException {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        try {
+            runner.parse(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.println("ERROR: " + ex.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        runner.run();
+    }
+
+    private void parse(String[] args) {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--algorithms":
+                    for (String name : value(args, ++i).split(",")) {
+                        algorithms.add(algorithm(name.trim()));
+                    }
+                    break;
+                case "--warmup":
+                    warmup = count(value(args, ++i), 0);
+                    break;
+                case "--iterations":
+                    iterations = count(value(args, ++i), 1);
+                    break;
+                case "--parallel":
+                    parallel = true;
+                    break;
+                case "--no-diagonal":
+                    diagonal = false;
+                    break;
+                case "--out":
+                    out = value(args, ++i);
+                    break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("unknown option " + args[i]);
+                    }
+                    files.add(args[i]);
+            }
+        }
+        if (files.size() != 2) {
+            throw new IllegalArgumentException("needs a map and a scenario file");
+        }
+        map = files.get(0);
+        scenario = files.get(1);
+        if (algorithms.isEmpty()) {
+            algorithms.addAll(Arrays.asList(Algorithm.values()));
+        }
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(args[i - 1] + " needs a value");
+        }
+        return args[i];
+    }
+
+    private static int count(String text, int min) {
+        try {
+            int n = Integer.parseInt(text);
+            if (n >= min) {
+                return n;
+            }
+        } catch (NumberFormatException ex) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("expected a whole number of at least " + min + ", got " + text);
+    }
+
+    // By name (ASTAR) or label (A*), ignoring case
+    private static Algorithm algorithm(String name) {
+        for (Algorithm a : Algorithm.values()) {
+            if (a.name().equalsIgnoreCase(name) || a.toString().equalsIgnoreCase(name)) {
+                return a;
+            }
+        }
+        throw new IllegalArgumentException("unknown algorithm " + name);
+    }
+
+    private void run() throws IOException {
+        APathfinding source = new APathfinding(0, 0);
+        MapFiles.read(Paths.get(map), source);
+        source.setDiagonal(diagonal);
+        List<Query> queries = MapFiles.readScenario(Paths.get(scenario));
+        System.err.printf(Locale.ROOT, "%s: %dx%d, %d queries%n", map, source.getWidth(), source.getHeight(),
+                queries.size());
+
+        try (PrintWriter csv = out == null
+                ? new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : new PrintWriter(Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8))) {
+            csv.println(CSV_HEADER);
+            for (Algorithm algorithm : algorithms) {
+                source.setAlgorithm(algorithm);
+                BatchSolver solver = parallel ? new BatchSolver(source) : null;
+                for (int i = 0; i < warmup; i++) {
+                    measure(source, solver, queries);
+                }
+                long[] nanos = new long[iterations * queries.size()];
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    List<SearchMetrics> metrics = measure(source, solver, queries);
+                    for (int q = 0; q < queries.size(); q++) {
+                        nanos[i * queries.size() + q] = metrics.get(q).getWallNanos();
+                        writeRow(csv, algorithm, i, q, queries.get(q), metrics.get(q));
+                    }
+                }
+                summary(algorithm, nanos, System.nanoTime() - start);
+            }
+        }
+    }
+
+    // Solves every query once, on this thread or through the solver
+    private static List<SearchMetrics> measure(APathfinding source, BatchSolver solver, List<Query> queries) {
+        if (solver != null) {
+            return solver.measure(queries);
+        }
+        List<SearchMetrics> metrics = new ArrayList<>(queries.size());
+        for (Query query : queries) {
+            source.solve(query.getStartX(), query.getStartY(), query.getEndX(), query.getEndY());
+            metrics.add(source.getMetrics());
+        }
+        return metrics;
+    }
+
+    // The length counts a diagonal step as the square root of 2, like the
+    // optimal length of the scenario when diagonal moves are allowed
+    private static void writeRow(PrintWriter csv, Algorithm algorithm, int iteration, int index, Query query,
+            SearchMetrics metrics) {
+        csv.printf(Locale.ROOT, "\"%s\",%d,%d,%d,%d,%d,%d,%b,%d,%d,%d,%.4f,%.4f%n", algorithm, iteration, index,
+                query.getStartX(), query.getStartY(), query.getEndX(), query.getEndY(), metrics.isFound(),
+                metrics.getWallNanos(), metrics.getExpanded(), metrics.getGenerated(), metrics.getLength(),
+                query.getOptimalLength());
+    }
+
+    private void summary(Algorithm algorithm, long[] nanos, long total) {
+        if (nanos.length == 0) {
+            return;
+        }
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double sum = 0;
+        for (long n : sorted) {
+            sum += n;
+        }
+        System.err.printf(Locale.ROOT, "%-6s mean %.3fms, median %.3fms, p99 %.3fms, %.1f queries/s%n",
+                algorithm, sum / sorted.length / 1e6, sorted[sorted.length / 2] / 1e6,
+                sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))] / 1e6,
+                nanos.length / (total / 1e9));
+    }
+}
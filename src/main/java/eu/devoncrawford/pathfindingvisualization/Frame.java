@@ -24,12 +24,17 @@
 package eu.devoncrawford.pathfindingvisualization;
 
 import eu.devoncrawford.pathfindingvisualization.ui.ControlHandler;
+import eu.devoncrawford.pathfindingvisualization.entity.CellState;
 import eu.devoncrawford.pathfindingvisualization.entity.Node;
+import eu.devoncrawford.pathfindingvisualization.entity.Query;
+import eu.devoncrawford.pathfindingvisualization.entity.SearchMetrics;
+import eu.devoncrawford.pathfindingvisualization.io.MapFiles;
 import eu.devoncrawford.pathfindingvisualization.ui.*;
 
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
@@ -39,7 +44,15 @@ import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
-
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Locale;
+
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
@@ -47,8 +60,9 @@ import javax.swing.Timer;
 
 /**
  * The main graphics class for APathfinding. Controls the window, and all path
- * finding node graphics. Need to work on zoom function, currently only zooms to
- * top left corner rather than towards mouse
+ * finding node graphics. Nodes are kept in cell coordinates, the cell size and
+ * the offset of the map on screen are the only view state, so zooming towards
+ * the mouse and panning never touch the map or the search
  *
  * @author Devon Crawford
  */
@@ -58,15 +72,30 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
     private final ControlHandler ch;
     private final JFrame window;
     private final APathfinding pathfinding;
+    private final SearchWorker worker;
+    private final SearchView view = new SearchView();
+    // True from start until the worker's finished event is drained
+    private boolean searching;
     private boolean showSteps, btnHover;
     private int size;
+    // Each square drawn is 2^level x 2^level cells, above 0 only once zoomed
+    // out past the smallest size
+    private int level;
+    // Screen position of the top left corner of cell (0, 0), never positive
+    private int offsetX, offsetY;
+    // Last mouse position while panning
+    private int panX, panY;
     private final double a1;
     private final double a2;
     private char currentKey = (char) 0;
     private Node startNode, endNode;
     private String mode;
 
+    private final LayerCache layers = new LayerCache();
+    private final SearchRaster raster = new SearchRaster();
     private final Timer timer = new Timer(100, this);
+    // Drains the worker's events at display rate while a search runs
+    private final Timer frameTimer = new Timer(16, e -> drainEvents());
     private int r = randomWithRange(0, 255);
     private int G = randomWithRange(0, 255);
     private int b = randomWithRange(0, 255);
@@ -86,12 +115,15 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
         setFocusTraversalKeysEnabled(false);
 
         // Set up pathfinding
-        pathfinding = new APathfinding(this, size);
+        pathfinding = new APathfinding(0, 0);
         pathfinding.setDiagonal(true);
+        pathfinding.setProfiling(true);
+        worker = new SearchWorker(pathfinding);
 
         // Calculating value of a in speed function 1
         a1 = (5000.0000 / (Math.pow(25.0000 / 5000, 1 / 49)));
-        a2 = 625.0000;
+        // Steps per second at speed 50, the start of speed function 2
+        a2 = 40.0000;
 
         // Set up window
         window = new JFrame();
@@ -113,13 +145,14 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
     @Override
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
+        Color background = getBackground();
 
         // Grab dimensions of panel
         int height = getHeight();
         int width = getWidth();
 
         // If no path is found
-        if (pathfinding.isNoPath()) {
+        if (!searching && pathfinding.isNoPath()) {
             // Set timer for animation
             timer.setDelay(50);
             timer.start();
@@ -132,6 +165,7 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
 
             // Set up flicker animation
             Color flicker = new Color(r, G, b);
+            background = flicker;
             g.setColor(flicker);
             g.fillRect(0, 0, getWidth(), getHeight());
 
@@ -143,7 +177,7 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
         }
 
         // If pathfinding is complete (found path)
-        if (pathfinding.isComplete()) {
+        if (!searching && pathfinding.isComplete()) {
             // Set run button to clear
             ch.getB("run").setText("clear");
 
@@ -153,68 +187,54 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
 
             // Make the background flicker
             Color flicker = new Color(r, G, b);
+            background = flicker;
             g.setColor(flicker);
             g.fillRect(0, 0, getWidth(), getHeight());
 
-            // Set completed mode
-            if (showSteps) {
-                mode = "Completed";
-            } else {
-                mode = "Completed in " + pathfinding.getRunTime() + "ms";
+            // Set completed mode, the time is shown with the metrics. An
+            // ARA* path cut short tells how far from optimal it can be
+            mode = "Completed";
+            if (pathfinding.getBound() > 1) {
+                mode = String.format(Locale.ROOT, "Completed, %.2fx", pathfinding.getBound());
             }
         }
 
-        // Draws grid
-        g.setColor(Color.lightGray);
-        for (int j = 0; j < this.getHeight(); j += size) {
-            for (int i = 0; i < this.getWidth(); i += size) {
-                g.drawRect(i, j, size, size);
-            }
+        // Draws the search as the view has it, only the area being
+        // repainted. The search, start and end are drawn in map pixels
+        int lod = Math.min(level, view.getLevels() - 1);
+        g.translate(offsetX, offsetY);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(-offsetX, -offsetY, width, height);
         }
-
-        // Draws all borders
-        g.setColor(Color.black);
-        for (int i = 0; i < pathfinding.getBorderList().size(); i++) {
-            g.fillRect(pathfinding.getBorderList().get(i).getX() + 1, pathfinding.getBorderList().get(i).getY() + 1,
-                    size - 1, size - 1);
+        raster.paint(g, view, lod, clip, size, background);
+        g.translate(-offsetX, -offsetY);
+
+        // Draws grid and borders from the cached layers over the search.
+        // Zoomed out past single cells the borders come from the view like
+        // the search and there is no grid
+        if (lod == 0) {
+            layers.paint(g, pathfinding, width, height, size, offsetX, offsetY);
         }
 
-        // Draws all open Nodes (path finding nodes)
-        for (int i = 0; i < pathfinding.getOpenList().size(); i++) {
-            Node current = pathfinding.getOpenList().get(i);
-            g.setColor(Style.greenHighlight);
-            g.fillRect(current.getX() + 1, current.getY() + 1, size - 1, size - 1);
-
-            drawInfo(current, g);
+        // The costs are only in the search, which belongs to the worker
+        // until it is done, so they are left out while searching
+        g.translate(offsetX, offsetY);
+        if (size > 50 && !searching) {
+            paintInfo(g, clip);
         }
 
-        // Draws all closed nodes
-        for (int i = 0; i < pathfinding.getClosedList().size(); i++) {
-            Node current = pathfinding.getClosedList().get(i);
-
-            g.setColor(Style.redHighlight);
-            g.fillRect(current.getX() + 1, current.getY() + 1, size - 1, size - 1);
-
-            drawInfo(current, g);
-        }
-
-        // Draw all final path nodes
-        pathfinding.getPathList().stream().forEach((current) -> {
-            g.setColor(Style.blueHighlight);
-            g.fillRect(current.getX() + 1, current.getY() + 1, size - 1, size - 1);
-            drawInfo(current, g);
-        });
-
         // Draws start of path
         if (startNode != null) {
             g.setColor(Color.blue);
-            g.fillRect(startNode.getX() + 1, startNode.getY() + 1, size - 1, size - 1);
+            fillNode(startNode, g);
         }
         // Draws end of path
         if (endNode != null) {
             g.setColor(Color.red);
-            g.fillRect(endNode.getX() + 1, endNode.getY() + 1, size - 1, size - 1);
+            fillNode(endNode, g);
         }
+        g.translate(-offsetX, -offsetY);
 
         // If control panel is being hovered, change colours
         if (btnHover) {
@@ -225,7 +245,7 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
             ch.nonHoverColour();
         }
         // Drawing control panel rectangle
-        g.fillRect(10, height - 96, 322, 90);
+        g.fillRect(10, height - 96, 414, 90);
 
         // Setting mode text
         ch.getL("modeText").setText("Mode: " + mode);
@@ -234,9 +254,16 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
         ch.position();
 
         // Setting numbers in pathfinding lists
-        ch.getL("openC").setText(Integer.toString(pathfinding.getOpenList().size()));
-        ch.getL("closedC").setText(Integer.toString(pathfinding.getClosedList().size()));
-        ch.getL("pathC").setText(Integer.toString(pathfinding.getPathList().size()));
+        // (from the view while the worker still owns the search)
+        if (searching) {
+            ch.getL("openC").setText(Integer.toString(view.count(CellState.OPEN) + view.count(CellState.BACK_OPEN)));
+            ch.getL("closedC").setText(Integer.toString(view.count(CellState.CLOSED) + view.count(CellState.BACK_CLOSED)));
+            ch.getL("pathC").setText(Integer.toString(view.count(CellState.PATH)));
+        } else {
+            ch.getL("openC").setText(Integer.toString(pathfinding.getOpenCount()));
+            ch.getL("closedC").setText(Integer.toString(pathfinding.getClosedCount()));
+            ch.getL("pathC").setText(Integer.toString(pathfinding.getPathCount()));
+        }
 
         // Setting speed number text in showSteps or !showSteps mode
         if (showSteps) {
@@ -245,34 +272,101 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
             ch.getL("speedC").setText("N/A");
         }
 
+        // Showing the metrics of a finished search, with all of them in the
+        // tool tip
+        boolean finished = !searching && (pathfinding.isComplete() || pathfinding.isNoPath());
+        ch.getB("export").setEnabled(finished);
+        if (finished) {
+            SearchMetrics metrics = pathfinding.getMetrics();
+            ch.getL("metricsC").setText(String.format(Locale.ROOT, "%.3f ms", metrics.getWallNanos() / 1e6));
+            ch.getL("metricsC").setToolTipText(String.format(Locale.ROOT,
+                    "<html>expansion %.3f ms<br>generation %.3f ms<br>open list %.3f ms<br>"
+                    + "reconstruction %.3f ms<br>expanded %d<br>generated %d<br>reopened %d<br>"
+                    + "peak open %d<br>allocated %d bytes</html>",
+                    metrics.getExpansionNanos() / 1e6, metrics.getGenerationNanos() / 1e6,
+                    metrics.getOpenListNanos() / 1e6, metrics.getReconstructionNanos() / 1e6,
+                    metrics.getExpanded(), metrics.getGenerated(), metrics.getReopened(),
+                    metrics.getPeakOpen(), metrics.getAllocatedBytes()));
+        } else {
+            ch.getL("metricsC").setText("");
+            ch.getL("metricsC").setToolTipText(null);
+        }
+
         // Getting values from checkboxes
         showSteps = ch.getC("showStepsCheck").isSelected();
-        pathfinding.setDiagonal(ch.getC("diagonalCheck").isSelected());
-        pathfinding.setTrig(ch.getC("trigCheck").isSelected());
+        if (!searching) {
+            pathfinding.setDiagonal(ch.getC("diagonalCheck").isSelected());
+            pathfinding.setTrig(ch.getC("trigCheck").isSelected());
+            pathfinding.setAlgorithm(ch.getAlgorithm());
+        }
+    }
+
+    // Draws info on every search node inside clip
+    private void paintInfo(Graphics g, Rectangle clip) {
+        int lastColumn = Math.min((clip.x + clip.width) / size, view.getWidth() - 1);
+        int lastRow = Math.min((clip.y + clip.height) / size, view.getHeight() - 1);
+        for (int y = Math.max(clip.y / size, 0); y <= lastRow; y++) {
+            for (int x = Math.max(clip.x / size, 0); x <= lastColumn; x++) {
+                if (view.get(x, y).ordinal() > CellState.BORDER.ordinal()) {
+                    drawInfo(x, y, g);
+                }
+            }
+        }
+    }
+
+    // Repaints only the squares of the given cells
+    private void repaintCells(BitSet cells) {
+        int mapWidth = view.getWidth();
+        for (int id = cells.nextSetBit(0); id >= 0; id = cells.nextSetBit(id + 1)) {
+            repaint((id % mapWidth >> level) * size + offsetX, (id / mapWidth >> level) * size + offsetY,
+                    size + 1, size + 1);
+        }
+    }
+
+    // Fills the grid square of a node (nodes are stored in cell coordinates)
+    private void fillNode(Node current, Graphics g) {
+        g.fillRect((current.getX() >> level) * size + 1, (current.getY() >> level) * size + 1, size - 1, size - 1);
+    }
+
+    // Draws info (f, g, h) on the search node at (x, y), read straight from
+    // the search
+    private void drawInfo(int x, int y, Graphics g) {
+        if (size > 50) {
+            drawInfo(pathfinding.getCellNode(x, y), g);
+        }
     }
 
     // Draws info (f, g, h) on current node
     private void drawInfo(Node current, Graphics g) {
         if (size > 50) {
+            int x = current.getX() * size;
+            int y = current.getY() * size;
             g.setFont(Style.numbers);
             g.setColor(Color.black);
-            g.drawString(Integer.toString(current.getF()), current.getX() + 4, current.getY() + 16);
+            g.drawString(Integer.toString(current.getF()), x + 4, y + 16);
             g.setFont(Style.smallNumbers);
-            g.drawString(Integer.toString(current.getG()), current.getX() + 4, current.getY() + size - 7);
-            g.drawString(Integer.toString(current.getH()), current.getX() + size - 26, current.getY() + size - 7);
+            g.drawString(Integer.toString(current.getG()), x + 4, y + size - 7);
+            g.drawString(Integer.toString(current.getH()), x + size - 26, y + size - 7);
         }
     }
 
     private void MapCalculations(MouseEvent e) {
+        // The worker owns the map until its search is over, and zoomed out
+        // past single cells there is no cell to click on
+        if (searching || level > 0) {
+            return;
+        }
+        fitGrid();
         // If left mouse button is clicked
         if (SwingUtilities.isLeftMouseButton(e)) {
             // If 's' is pressed create start node
             switch (currentKey) {
                 case 's': {
-                    int xPosition = e.getX() - (e.getX() % size);
-                    int yPosition = e.getY() - (e.getY() % size);
+                    int xPosition = cellX(e);
+                    int yPosition = cellY(e);
                     // Remove any pre-existing wall
                     pathfinding.removeBorder(new Node(xPosition, yPosition));
+                    cellChanged(xPosition, yPosition);
                     if (startNode == null) {
                         startNode = new Node(xPosition, yPosition);
                     } else {
@@ -282,10 +376,11 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
                     break;
                 } // If 'e' is pressed create end node
                 case 'e': {
-                    int xPosition = e.getX() - (e.getX() % size);
-                    int yPosition = e.getY() - (e.getY() % size);
+                    int xPosition = cellX(e);
+                    int yPosition = cellY(e);
                     // Remove any pre-existing wall
                     pathfinding.removeBorder(new Node(xPosition, yPosition));
+                    cellChanged(xPosition, yPosition);
                     if (endNode == null) {
                         endNode = new Node(xPosition, yPosition);
                     } else {
@@ -295,21 +390,22 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
                     break;
                 } // Otherwise, create a wall
                 default:
-                    int xBorder = e.getX() - (e.getX() % size);
-                    int yBorder = e.getY() - (e.getY() % size);
+                    int xBorder = cellX(e);
+                    int yBorder = cellY(e);
                     Node newBorder = new Node(xBorder, yBorder);
                     // A new wall is added only if the end doesn't exist yet OR if the new border
                     // doesn't overlap the end
                     if (pathfinding.getEnd() == null || !pathfinding.getEnd().equals(newBorder)) {
                         pathfinding.addBorder(newBorder);
+                        cellChanged(xBorder, yBorder);
                     }
                     repaint();
                     break;
             }
         } // If right mouse button is clicked
         else if (SwingUtilities.isRightMouseButton(e)) {
-            int mouseBoxX = e.getX() - (e.getX() % size);
-            int mouseBoxY = e.getY() - (e.getY() % size);
+            int mouseBoxX = cellX(e);
+            int mouseBoxY = cellY(e);
 
             // If 's' is pressed remove start node
             switch (currentKey) {
@@ -331,6 +427,7 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
                     int Location = pathfinding.searchBorder(mouseBoxX, mouseBoxY);
                     if (Location != -1) {
                         pathfinding.removeBorder(Location);
+                        cellChanged(mouseBoxX, mouseBoxY);
                     }
                     repaint();
                     break;
@@ -338,6 +435,23 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
         }
     }
 
+    // Brings the layers and the view up to date after a border edit
+    private void cellChanged(int x, int y) {
+        layers.cellChanged(pathfinding, x, y);
+        if (x >= 0 && y >= 0 && x < view.getWidth() && y < view.getHeight()) {
+            view.set(y * view.getWidth() + x, pathfinding.getCellState(x, y));
+        }
+    }
+
+    // Cell under the mouse
+    private int cellX(MouseEvent e) {
+        return (e.getX() - offsetX) / size;
+    }
+
+    private int cellY(MouseEvent e) {
+        return (e.getY() - offsetY) / size;
+    }
+
     @Override
     public void mouseClicked(MouseEvent e) {
         MapCalculations(e);
@@ -345,6 +459,8 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
 
     @Override
     public void mousePressed(MouseEvent e) {
+        panX = e.getX();
+        panY = e.getY();
     }
 
     @Override
@@ -360,8 +476,15 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
     }
 
     @Override
+    // Dragging with the middle button pans, otherwise it draws
     public void mouseDragged(MouseEvent e) {
-        MapCalculations(e);
+        if (SwingUtilities.isMiddleMouseButton(e)) {
+            moveView(offsetX + e.getX() - panX, offsetY + e.getY() - panY);
+            panX = e.getX();
+            panY = e.getY();
+        } else {
+            MapCalculations(e);
+        }
     }
 
     @Override
@@ -371,9 +494,13 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
         int y = e.getY();
         int height = this.getHeight();
 
-        // Detects if mouse is within button panel
-        btnHover = x >= 10 && x <= 332 && y >= (height - 96) && y <= (height - 6);
-        repaint();
+        // Detects if mouse is within button panel, only repaints when that
+        // changes
+        boolean hover = x >= 10 && x <= 424 && y >= (height - 96) && y <= (height - 6);
+        if (hover != btnHover) {
+            btnHover = hover;
+            repaint();
+        }
     }
 
     @Override
@@ -397,85 +524,134 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
         currentKey = (char) 0;
     }
 
-    // Starts path finding
+    // Replaces the map with one read from a file, see MapFiles
+    void loadMap(Path file) throws IOException {
+        MapFiles.read(file, pathfinding);
+        view.loadBorders(pathfinding);
+        startNode = null;
+        endNode = null;
+        repaint();
+    }
+
+    // Places start and end like a benchmark query
+    void setQuery(Query query) {
+        startNode = new Node(query.getStartX(), query.getStartY());
+        endNode = new Node(query.getEndX(), query.getEndY());
+        repaint();
+    }
+
+    // Starts path finding on the worker thread, with copies of the start and
+    // end nodes so they can be moved again once it is done
     void start() {
         if (startNode != null && endNode != null) {
-            if (!showSteps) {
-                pathfinding.start(startNode, endNode);
-            } else {
-                pathfinding.setup(startNode, endNode);
+            fitGrid();
+            if (showSteps) {
                 setSpeed();
-                timer.start();
+                mode = "Running";
             }
+            view.loadBorders(pathfinding);
+            searching = true;
+            worker.start(new Node(startNode.getX(), startNode.getY()),
+                    new Node(endNode.getX(), endNode.getY()), showSteps);
+            frameTimer.start();
+            repaint();
         } else {
             System.out.println("ERROR: Needs start and end points to run.");
         }
     }
 
-    @Override
-    // Scales the map with mouse wheel scroll
-    public void mouseWheelMoved(MouseWheelEvent m) {
-        int rotation = m.getWheelRotation();
-        double prevSize = size;
-        int scroll = 3;
-
-        // Changes size of grid based on scroll
-        if (rotation == -1 && size + scroll < 200) {
-            size += scroll;
-        } else if (rotation == 1 && size - scroll > 2) {
-            size += -scroll;
+    // Applies the cells the worker changed since the last frame and repaints
+    // just those, each once. Once the search finished the whole view is
+    // taken from it again
+    private void drainEvents() {
+        BitSet dirty = new BitSet();
+        boolean finished = worker.drain((id, state) -> {
+            if (view.set(id, state)) {
+                dirty.set(id);
+            }
+        });
+        if (finished) {
+            endSearch();
+            return;
         }
-        pathfinding.setSize(size);
-        double ratio = size / prevSize;
+        repaintCells(dirty);
 
-        // new X and Y values for Start
-        if (startNode != null) {
-            int sX = (int) Math.round(startNode.getX() * ratio);
-            int sY = (int) Math.round(startNode.getY() * ratio);
-            startNode.setXY(sX, sY);
+        // Shows the bound of each path ARA* improves on
+        double bound = worker.getBound();
+        if (bound > 0 && !mode.equals(boundMode(bound))) {
+            mode = boundMode(bound);
+            repaint();
         }
+    }
 
-        // new X and Y values for End
-        if (endNode != null) {
-            int eX = (int) Math.round(endNode.getX() * ratio);
-            int eY = (int) Math.round(endNode.getY() * ratio);
-            endNode.setXY(eX, eY);
-        }
+    private static String boundMode(double bound) {
+        return String.format(Locale.ROOT, "Refining, %.2fx", bound);
+    }
 
-        // new X and Y values for borders
-        for (int i = 0; i < pathfinding.getBorderList().size(); i++) {
-            int newX = (int) Math.round((pathfinding.getBorderList().get(i).getX() * ratio));
-            int newY = (int) Math.round((pathfinding.getBorderList().get(i).getY() * ratio));
-            pathfinding.getBorderList().get(i).setXY(newX, newY);
-        }
+    // Stops drawing from the worker and shows the search as it is
+    private void endSearch() {
+        searching = false;
+        frameTimer.stop();
+        view.reload(pathfinding);
+        repaint();
+    }
 
-        // New X and Y for Open nodes
-        for (int i = 0; i < pathfinding.getOpenList().size(); i++) {
-            int newX = (int) Math.round((pathfinding.getOpenList().get(i).getX() * ratio));
-            int newY = (int) Math.round((pathfinding.getOpenList().get(i).getY() * ratio));
-            pathfinding.getOpenList().get(i).setXY(newX, newY);
+    // Grows the search grid to cover every cell visible in the window. It
+    // never shrinks, so nothing drawn before zooming in gets cut off
+    private void fitGrid() {
+        // Zoomed out past single cells the map keeps its size
+        if (level > 0) {
+            return;
         }
+        int columns = (getWidth() - offsetX + size - 1) / size;
+        int rows = (getHeight() - offsetY + size - 1) / size;
+        pathfinding.setGridSize(Math.max(columns, pathfinding.getWidth()), Math.max(rows, pathfinding.getHeight()));
+        if (view.getWidth() != pathfinding.getWidth() || view.getHeight() != pathfinding.getHeight()) {
+            view.reload(pathfinding);
+        }
+    }
+
+    @Override
+    // Scales the map with mouse wheel scroll
+    public void mouseWheelMoved(MouseWheelEvent m) {
+        int rotation = m.getWheelRotation();
+        int scroll = 3;
 
-        // New X and Y for Closed Nodes
-        for (int i = 0; i < pathfinding.getClosedList().size(); i++) {
-            if (!pathfinding.getClosedList().get(i).equals(startNode)) {
-                int newX = (int) Math.round((pathfinding.getClosedList().get(i).getX() * ratio));
-                int newY = (int) Math.round((pathfinding.getClosedList().get(i).getY() * ratio));
-                pathfinding.getClosedList().get(i).setXY(newX, newY);
+        // Changes size of grid based on scroll. At the smallest size each
+        // square takes twice as many cells per side instead
+        int oldSize = size;
+        int oldLevel = level;
+        if (rotation == -1) {
+            if (level > 0) {
+                level--;
+            } else if (size + scroll < 200) {
+                size += scroll;
+            }
+        } else if (rotation == 1) {
+            if (size - scroll > 2) {
+                size += -scroll;
+            } else if (level < view.getLevels() - 1) {
+                level++;
             }
         }
+        // Keeps the point under the mouse where it is. Nodes are kept in cell
+        // coordinates, so only the view changes
+        double scale = (double) size / oldSize * (1 << oldLevel) / (1 << level);
+        moveView((int) Math.round(m.getX() - (m.getX() - offsetX) * scale),
+                (int) Math.round(m.getY() - (m.getY() - offsetY) * scale));
+    }
+
+    // Moves the map on screen, its top left corner can not come into view
+    private void moveView(int x, int y) {
+        offsetX = Math.min(x, 0);
+        offsetY = Math.min(y, 0);
         repaint();
     }
 
     @Override
     public void actionPerformed(ActionEvent e) {
-        // Moves one step ahead in path finding (called on timer)
-        if (pathfinding.isRunning() && showSteps) {
-            pathfinding.findPath(pathfinding.getPar());
-            mode = "Running";
-        }
         // Finish pathfinding background flicker!
-        if (pathfinding.isComplete() || pathfinding.isNoPath()) {
+        if (!searching && (pathfinding.isComplete() || pathfinding.isNoPath())) {
             r = (int) (Math.random() * ((r + 15) - (r - 15)) + (r - 15));
             G = (int) (Math.random() * ((G + 15) - (G - 15)) + (G - 15));
             b = (int) (Math.random() * ((b + 15) - (b - 15)) + (b - 15));
@@ -493,25 +669,55 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
 
         // Actions of run/stop/clear button
         if (e.getActionCommand() != null) {
-            if (e.getActionCommand().equals("run") && !pathfinding.isRunning()) {
+            if (e.getActionCommand().equals("run") && !searching) {
                 ch.getB("run").setText("stop");
                 start();
             } else if (e.getActionCommand().equals("clear")) {
                 ch.getB("run").setText("run");
                 mode = "Map Creation";
                 ch.getL("noPathT").setVisible(false);
+                worker.cancel();
                 pathfinding.reset();
+                endSearch();
             } else if (e.getActionCommand().equals("stop")) {
-                ch.getB("run").setText("start");
-                timer.stop();
+                // Pauses a step by step search, a full run is cancelled
+                if (worker.isStepping()) {
+                    ch.getB("run").setText("start");
+                    worker.setPaused(true);
+                } else {
+                    ch.getB("run").setText("clear");
+                    worker.cancel();
+                    endSearch();
+                }
             } else if (e.getActionCommand().equals("start")) {
                 ch.getB("run").setText("stop");
-                timer.start();
+                worker.setPaused(false);
+            } else if (e.getActionCommand().equals("export")) {
+                exportMetrics();
             }
         }
         repaint();
     }
 
+    // Saves the metrics of the last search, as JSON if the file name ends
+    // in .json and as CSV with a header row otherwise
+    private void exportMetrics() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("metrics.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        SearchMetrics metrics = pathfinding.getMetrics();
+        String text = file.getName().toLowerCase(Locale.ROOT).endsWith(".json") ? metrics.toJson()
+                : SearchMetrics.CSV_HEADER + System.lineSeparator() + metrics.toCsv();
+        try {
+            Files.write(file.toPath(), (text + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            System.out.println("ERROR: Could not write " + file + ": " + ex.getMessage());
+        }
+    }
+
     // Returns random number between min and max
     private int randomWithRange(int min, int max) {
         if (min >= max) {
@@ -520,27 +726,21 @@ public class Frame extends JPanel implements ActionListener, MouseListener, Mous
         return (int) (Math.random() * ((max - min) + 1)) + min;
     }
 
-    // Calculates delay with two exponential functions
+    // Calculates the steps per second with two exponential functions, speed
+    // 0 holds the search. Past one step per frame the worker takes several
+    // steps for each frame
     public void setSpeed() {
-        int delay = 0;
+        double rate = 0;
         int value = ch.getS("speed").getValue();
 
-        if (value == 0) {
-            timer.stop();
-        } else if (value >= 1 && value < 50) {
-            if (!timer.isRunning()) {
-                timer.start();
-            }
+        if (value >= 1 && value < 50) {
             // Exponential function. value(1) == delay(5000). value (50) == delay(25)
-            delay = (int) (a1 * (Math.pow(25 / 5000.0000, value / 49.0000)));
+            rate = 1000 / (a1 * (Math.pow(25 / 5000.0000, value / 49.0000)));
         } else if (value >= 50 && value <= 100) {
-            if (!timer.isRunning()) {
-                timer.start();
-            }
-            // Exponential function. value (50) == delay(25). value(100) == delay(1).
-            delay = (int) (a2 * (Math.pow(1 / 25.0000, value / 50.0000)));
+            // Exponential function. value (50) == 40 steps/s. value(100) == 4000000 steps/s.
+            rate = a2 * Math.pow(100000.0000, (value - 50) / 50.0000);
         }
-        timer.setDelay(delay);
+        worker.setRate(rate);
     }
 
     public boolean showSteps() {
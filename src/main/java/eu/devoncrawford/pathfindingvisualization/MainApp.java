@@ -23,14 +23,38 @@
  */
 package eu.devoncrawford.pathfindingvisualization;
 
+import eu.devoncrawford.pathfindingvisualization.entity.Query;
+import eu.devoncrawford.pathfindingvisualization.io.MapFiles;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  *  
  * @author jay
  */
 public class MainApp {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        // Benchmarks without a window, see BenchmarkRunner
+        if (args.length > 0 && args[0].equals("--bench")) {
+            BenchmarkRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         Frame frame = new Frame();
+
+        // Optional map file, and a Moving AI scenario whose first query
+        // places start and end
+        if (args.length > 0) {
+            frame.loadMap(Paths.get(args[0]));
+        }
+        if (args.length > 1) {
+            List<Query> queries = MapFiles.readScenario(Paths.get(args[1]));
+            if (!queries.isEmpty()) {
+                frame.setQuery(queries.get(0));
+            }
+        }
     }
 
 }
@@ -0,0 +1,256 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization;
+
+import eu.devoncrawford.pathfindingvisualization.entity.CellState;
+import eu.devoncrawford.pathfindingvisualization.entity.Node;
+import eu.devoncrawford.pathfindingvisualization.search.EventQueue;
+import java.util.BitSet;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SearchWorker.java runs the searches of the window on their own thread so
+ * the graphics stay responsive. Nothing else may touch the APathfinding
+ * between start and the finished event, or a cancel.
+ *
+ * In step mode it takes steps at the rate set, and publishes the new state of
+ * every cell they changed through a single producer, single consumer queue.
+ * Past one step per frame the steps due are taken in batches that stop at the
+ * frame time, each published once, so fast rates cost one event per changed
+ * cell and frame rather than per step. The event dispatch
+ * thread drains that queue once per frame. A full run only publishes the
+ * paths ARA* finds on the way and that it finished, after which the search
+ * can be read directly again.
+ *
+ * @author Devon Crawford
+ */
+public class SearchWorker {
+
+    private static final CellState[] STATES = CellState.values();
+
+    // Event kind for the end of a search, the others are CellState ordinals
+    private static final int FINISHED = 0xFF;
+
+    // Longest a batch of steps runs before its changes are published
+    private static final long FRAME_NANOS = 16000000L;
+
+    private final APathfinding pathfinding;
+    private final EventQueue events = new EventQueue(1 << 16);
+
+    private Thread thread;
+    private boolean stepping;
+    private volatile boolean cancelled, paused;
+
+    // Steps per second in step mode, 0 holds the search
+    private volatile double rate;
+
+    // Bound of the last path ARA* found, 0 before the first
+    private volatile double bound;
+
+    // Receives the new state of each changed cell while draining
+    public interface CellListener {
+
+        void cellChanged(int id, CellState state);
+    }
+
+    // Takes over the path listener of the pathfinding
+    public SearchWorker(APathfinding pathfinding) {
+        this.pathfinding = pathfinding;
+        pathfinding.setPathListener((path, cost, b) -> {
+            bound = b;
+            if (!stepping) {
+                publishChanges();
+            }
+        });
+    }
+
+    /**
+     * Cancels any search still running, resets the pathfinding and starts
+     * searching from s to e on the worker thread. The nodes must not be
+     * changed afterwards.
+     *
+     * @param steps step by step at the rate set, or a full run
+     */
+    public void start(Node s, Node e, boolean steps) {
+        cancel();
+        pathfinding.reset();
+        cancelled = false;
+        paused = false;
+        stepping = steps;
+        bound = 0;
+        thread = new Thread(() -> search(s, e, steps), "search-worker");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the search and waits for the worker thread to end. Events not
+     * drained yet are dropped.
+     */
+    public void cancel() {
+        if (thread == null) {
+            return;
+        }
+        cancelled = true;
+        pathfinding.cancel();
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        events.clear();
+    }
+
+    // True if the active search goes one step at a time
+    public boolean isStepping() {
+        return thread != null && stepping;
+    }
+
+    /**
+     * How far the last path ARA* found can be from the shortest one, 0
+     * before it found one. Safe to read while searching.
+     */
+    public double getBound() {
+        return bound;
+    }
+
+    public void setPaused(boolean p) {
+        paused = p;
+        wake();
+    }
+
+    public void setRate(double stepsPerSecond) {
+        rate = stepsPerSecond;
+        wake();
+    }
+
+    /**
+     * Passes every cell change published so far to listener. Event
+     * dispatch thread only.
+     *
+     * @return true if the search finished, it can be read directly from then
+     * on
+     */
+    public boolean drain(CellListener listener) {
+        boolean[] finished = new boolean[1];
+        events.drain(event -> {
+            int kind = (int) event & 0xFF;
+            if (kind == FINISHED) {
+                finished[0] = true;
+            } else {
+                listener.cellChanged((int) (event >>> 8), STATES[kind]);
+            }
+        });
+        if (finished[0]) {
+            // The thread is done with the pathfinding once it sends this
+            cancel();
+        }
+        return finished[0];
+    }
+
+    private void wake() {
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    // Worker thread
+    private void search(Node s, Node e, boolean steps) {
+        try {
+            if (steps) {
+                pathfinding.setup(s, e);
+                publishChanges();
+                stepAtRate();
+            } else {
+                pathfinding.start(s, e);
+                pathfinding.takeChangedCells();
+            }
+        } finally {
+            publish(FINISHED);
+        }
+    }
+
+    // Takes the steps due by the rate, waiting while none are. Steps that
+    // could not be taken in time are dropped after a frame's worth, so the
+    // search does not race ahead after a slow stretch
+    private void stepAtRate() {
+        double due = 0;
+        long last = System.nanoTime();
+        while (pathfinding.isRunning() && !cancelled) {
+            double r = rate;
+            if (paused || r <= 0) {
+                LockSupport.park(this);
+                last = System.nanoTime();
+                continue;
+            }
+            long now = System.nanoTime();
+            due = Math.min(due + (now - last) * r / 1e9, Math.max(1, r * FRAME_NANOS / 1e9));
+            last = now;
+            if (due < 1) {
+                LockSupport.parkNanos(this, (long) ((1 - due) * 1e9 / r));
+                continue;
+            }
+
+            long deadline = now + FRAME_NANOS;
+            int taken = 0;
+            while (taken < (int) due && pathfinding.isRunning() && !cancelled) {
+                pathfinding.step();
+                taken++;
+                if (System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+            due -= taken;
+            publishChanges();
+        }
+    }
+
+    private void publishChanges() {
+        int width = pathfinding.getWidth();
+        BitSet changed = pathfinding.takeChangedCells();
+        for (int id = changed.nextSetBit(0); id >= 0; id = changed.nextSetBit(id + 1)) {
+            CellState state = pathfinding.getCellState(id % width, id / width);
+            publish((long) id << 8 | state.ordinal());
+        }
+    }
+
+    // Waits for room while the event dispatch thread catches up
+    private void publish(long event) {
+        while (!events.offer(event)) {
+            if (cancelled) {
+                return;
+            }
+            LockSupport.parkNanos(100000);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.entity;
+
+import java.util.Locale;
+
+/**
+ * SearchMetrics.java holds what one search measured: the cost and length of
+ * its path, its wall time in
+ * nanoseconds and how that split over the phases of a step, how many nodes
+ * it expanded, generated and reopened, the peak size of its open lists and
+ * the bytes it allocated. Phase times and allocations of a search taken step
+ * by step are only there when profiling was on, see
+ * APathfinding.setProfiling. Exports to a JSON object or a CSV row.
+ *
+ * @author Devon Crawford
+ */
+public class SearchMetrics {
+
+    // Columns of toCsv, in order
+    public static final String CSV_HEADER = "algorithm,found,cost,length,wallNanos,expansionNanos,"
+            + "generationNanos,openListNanos,reconstructionNanos,expanded,generated,reopened,peakOpen,allocatedBytes";
+
+    private final String algorithm;
+    private final boolean found;
+    private final int cost;
+    private final double length;
+    private final long wallNanos, expansionNanos, generationNanos, openListNanos, reconstructionNanos;
+    private final long expanded, generated, reopened;
+    private final int peakOpen;
+    private final long allocatedBytes;
+
+    public SearchMetrics(String algorithm, boolean found, int cost, double length, long wallNanos,
+            long expansionNanos, long generationNanos, long openListNanos, long reconstructionNanos, long expanded,
+            long generated, long reopened, int peakOpen, long allocatedBytes) {
+        this.algorithm = algorithm;
+        this.found = found;
+        this.cost = cost;
+        this.length = length;
+        this.wallNanos = wallNanos;
+        this.expansionNanos = expansionNanos;
+        this.generationNanos = generationNanos;
+        this.openListNanos = openListNanos;
+        this.reconstructionNanos = reconstructionNanos;
+        this.expanded = expanded;
+        this.generated = generated;
+        this.reopened = reopened;
+        this.peakOpen = peakOpen;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    // Cost of the path, -1 if no path was found
+    public int getCost() {
+        return cost;
+    }
+
+    // Length of the path in cells, a diagonal step counting as the square
+    // root of 2 like the optimal lengths of Moving AI scenarios, -1 if no
+    // path was found
+    public double getLength() {
+        return length;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    // Time in steps outside the other phases: closing nodes, correcting
+    // costs, and all of HPA* and LPA*, which search their own graphs
+    public long getExpansionNanos() {
+        return expansionNanos;
+    }
+
+    // Time spent finding and opening the successors of expanded nodes
+    public long getGenerationNanos() {
+        return generationNanos;
+    }
+
+    // Time spent picking and removing the next node from the open list
+    public long getOpenListNanos() {
+        return openListNanos;
+    }
+
+    // Time spent building the path from the parents
+    public long getReconstructionNanos() {
+        return reconstructionNanos;
+    }
+
+    // Number of nodes closed
+    public long getExpanded() {
+        return expanded;
+    }
+
+    // Number of nodes put on an open list
+    public long getGenerated() {
+        return generated;
+    }
+
+    // Number of open nodes reached again with a lower cost
+    public long getReopened() {
+        return reopened;
+    }
+
+    // Most nodes on the open lists at once
+    public int getPeakOpen() {
+        return peakOpen;
+    }
+
+    // Bytes allocated by the searching thread, -1 if the JVM can not tell
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\"algorithm\":\"%s\",\"found\":%b,\"cost\":%d,\"length\":%.4f,"
+                + "\"wallNanos\":%d,\"expansionNanos\":%d,\"generationNanos\":%d,\"openListNanos\":%d,"
+                + "\"reconstructionNanos\":%d,\"expanded\":%d,\"generated\":%d,\"reopened\":%d,\"peakOpen\":%d,"
+                + "\"allocatedBytes\":%d}",
+                algorithm.replace("\\", "\\\\").replace("\"", "\\\""), found, cost, length, wallNanos,
+                expansionNanos, generationNanos, openListNanos, reconstructionNanos, expanded, generated, reopened,
+                peakOpen, allocatedBytes);
+    }
+
+    // One row under CSV_HEADER, without a line break
+    public String toCsv() {
+        return String.format(Locale.ROOT, "\"%s\",%b,%d,%.4f,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d",
+                algorithm.replace("\"", "\"\""), found, cost, length, wallNanos, expansionNanos, generationNanos,
+                openListNanos, reconstructionNanos, expanded, generated, reopened, peakOpen, allocatedBytes);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s: %.3fms, %d expanded, %d generated, %d reopened, peak open %d",
+                algorithm, wallNanos / 1e6, expanded, generated, reopened, peakOpen);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SearchResult.java holds the outcome of one complete search: whether a path
+ * was found, the path itself from start to end (both included), its cost and
+ * how much work the search did. The path is kept as cell ids
+ * (y * width + x), Nodes are only built when asked for.
+ *
+ * @author Devon Crawford
+ */
+public class SearchResult {
+
+    private final boolean found;
+    private final int width;
+    private final int[] path;
+    private final int cost, expanded;
+    private final long runTime;
+
+    public SearchResult(boolean found, int width, int[] path, int cost, int expanded, long runTime) {
+        this.found = found;
+        this.width = width;
+        this.path = path;
+        this.cost = cost;
+        this.expanded = expanded;
+        this.runTime = runTime;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    // Width of the grid the cell ids belong to
+    public int getWidth() {
+        return width;
+    }
+
+    // Path as cell ids, empty if no path was found. Not a copy
+    public int[] getPath() {
+        return path;
+    }
+
+    public int getPathLength() {
+        return path.length;
+    }
+
+    // Cell coordinates of the i-th path step
+    public int getX(int i) {
+        return path[i] % width;
+    }
+
+    public int getY(int i) {
+        return path[i] / width;
+    }
+
+    // Builds the path as Nodes
+    public List<Node> getPathNodes() {
+        List<Node> nodes = new ArrayList<>(path.length);
+        for (int i = 0; i < path.length; i++) {
+            nodes.add(new Node(getX(i), getY(i)));
+        }
+        return nodes;
+    }
+
+    // Cost of the path, -1 if no path was found
+    public int getCost() {
+        return cost;
+    }
+
+    // Number of nodes that were closed during the search
+    public int getExpanded() {
+        return expanded;
+    }
+
+    // Run time in milliseconds
+    public long getRunTime() {
+        return runTime;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.io;
+
+import eu.devoncrawford.pathfindingvisualization.APathfinding;
+import eu.devoncrawford.pathfindingvisualization.entity.Query;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * MapFiles.java reads and writes maps straight into the borders of an
+ * APathfinding, without a Node per border.
+ *
+ * Two map formats are understood: the Moving AI benchmark ".map" text
+ * format, and a binary grid of one bit per cell. The binary grid starts with
+ * the bytes "PFG1", then the width and height as ints, then the cells as
+ * 64 bit words in the order of the cell ids (y * width + x), one bit per
+ * cell and set for a border. Everything is little endian, so the words are
+ * exactly those of the borders BitSet. Moving AI ".scen" files are read as
+ * a list of queries.
+ *
+ * @author Devon Crawford
+ */
+public final class MapFiles {
+
+    private static final int MAGIC = 0x31474650; // "PFG1" read little endian
+    private static final int HEADER = 12;
+
+    private MapFiles() {
+    }
+
+    // Reads a Moving AI map if the name ends in ".map", a binary grid
+    // otherwise
+    public static void read(Path file, APathfinding target) throws IOException {
+        if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".map")) {
+            readMovingAiMap(file, target);
+        } else {
+            readBinary(file, target);
+        }
+    }
+
+    /**
+     * Reads a Moving AI map. Free ground ('.', 'G') and swamp ('S') can be
+     * walked on, everything else ('@', 'O', 'T', 'W') is a border.
+     */
+    public static void readMovingAiMap(Path file, APathfinding target) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            int width = -1, height = -1;
+            String line;
+            while ((line = reader.readLine()) != null && !line.trim().equals("map")) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts[0].equals("width")) {
+                    width = Integer.parseInt(parts[1]);
+                } else if (parts[0].equals("height")) {
+                    height = Integer.parseInt(parts[1]);
+                }
+            }
+            if (line == null || width < 0 || height < 0) {
+                throw new IOException("Not a Moving AI map, header incomplete: " + file);
+            }
+
+            BitSet borders = new BitSet(width * height);
+            for (int y = 0; y < height; y++) {
+                line = reader.readLine();
+                if (line == null || line.length() < width) {
+                    throw new IOException("Map row " + y + " is missing or short: " + file);
+                }
+                for (int x = 0; x < width; x++) {
+                    char c = line.charAt(x);
+                    if (c != '.' && c != 'G' && c != 'S') {
+                        borders.set(y * width + x);
+                    }
+                }
+            }
+            target.setBorders(width, height, borders);
+        }
+    }
+
+    /**
+     * Reads a Moving AI scenario. Each query carries the optimal length of
+     * its path as given in the file.
+     */
+    public static List<Query> readScenario(Path file) throws IOException {
+        List<Query> queries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Bucket, map, width, height, start x, start y, goal x,
+                // goal y, optimal length. The first line is the version
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length < 9 || parts[0].equals("version")) {
+                    continue;
+                }
+                try {
+                    queries.add(new Query(Integer.parseInt(parts[4]), Integer.parseInt(parts[5]),
+                            Integer.parseInt(parts[6]), Integer.parseInt(parts[7]), Double.parseDouble(parts[8])));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad scenario line \"" + line + "\": " + file, e);
+                }
+            }
+        }
+        return queries;
+    }
+
+    // Maps a binary grid into memory and copies its words into the borders
+    public static void readBinary(Path file, APathfinding target) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER) {
+                throw new IOException("Binary grid too short: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a binary grid: " + file);
+            }
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            long words = ((long) width * height + 63) / 64;
+            if (width < 0 || height < 0 || channel.size() < HEADER + words * 8) {
+                throw new IOException("Binary grid cut short: " + file);
+            }
+
+            buffer.limit((int) (HEADER + words * 8));
+            BitSet borders = BitSet.valueOf(buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer());
+            target.setBorders(width, height, borders);
+        }
+    }
+
+    public static void writeBinary(Path file, APathfinding source) throws IOException {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        long[] words = source.copyBorders().toLongArray();
+        int count = (int) (((long) width * height + 63) / 64);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + count * 8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(width).putInt(height);
+        // toLongArray stops at the last border, the rest stays zero
+        buffer.asLongBuffer().put(words, 0, Math.min(words.length, count));
+        buffer.rewind();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.search;
+
+/**
+ * The search algorithms APathfinding can run, as listed in the control
+ * panel.
+ *
+ * @author Devon Crawford
+ */
+public enum Algorithm {
+    // Plain A*, neighbours picked by the diagonal and trig settings
+    ASTAR("A*"),
+    // A* from both ends at once, neighbours picked by the diagonal setting
+    BIDIRECTIONAL("Bi A*"),
+    // Jump Point Search, always diagonal
+    JPS("JPS"),
+    // JPS with jump distances precomputed for the whole map
+    JPS_PLUS("JPS+"),
+    // Hierarchical A* over clusters of the map, near optimal
+    HPA("HPA*"),
+    // Lifelong Planning A*, repairs its last search after border edits
+    LPA("LPA*"),
+    // Anytime Repairing A*, a weighted path first that gets better until
+    // it is optimal
+    ARA("ARA*");
+
+    private final String label;
+
+    Algorithm(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.search;
+
+import static eu.devoncrawford.pathfindingvisualization.APathfinding.DIAGONAL_MOVE_COST;
+import static eu.devoncrawford.pathfindingvisualization.APathfinding.MOVE_COST;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Anytime Repairing A* (ARA*) between a fixed start and end cell. The first
+ * round is A* with the heuristic multiplied by a weight, which finds a path
+ * quickly that costs at most weight times the optimal one. Every round after
+ * that lowers the weight and carries on from the costs found so far: cells
+ * that got cheaper after they were expanded are kept aside and only those
+ * are opened again, instead of searching from scratch. The last round has a
+ * weight of 1 and gives the optimal path.
+ *
+ * Each finished round gives a path and a bound on how far it can be from
+ * the optimal cost. The search can be stopped between any two steps and the
+ * best path so far read with {@link #getPath()}. Moves follow the diagonal
+ * setting it is created with, never cutting corners, the same as
+ * {@link IncrementalSearch}.
+ *
+ * @author Devon Crawford
+ */
+public class AnytimeSearch {
+
+    // Weight of the first round
+    public static final double DEFAULT_WEIGHT = 2.5;
+
+    // Weights are kept in tenths so the open list keys stay integers, each
+    // round lowers the weight by half a unit
+    private static final int WEIGHT_SCALE = 10;
+    private static final int WEIGHT_STEP = 5;
+
+    // Cost of cells that cannot be reached, small enough to add a step to
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    private final int width, height, start, end;
+    private final boolean diagonal;
+    private final BitSet borders;
+
+    private final int[] g, parents;
+    private final IndexedHeap open;
+
+    // Cells expanded in this round, cells that got cheaper after they were
+    // expanded in this round, and cells expanded in any round
+    private final BitSet closed = new BitSet();
+    private final BitSet inconsistent = new BitSet();
+    private final BitSet expanded = new BitSet();
+
+    // Cells whose cost or list changed in the last step, listed rather than
+    // kept in a set so a step only costs as much as the cells it touched
+    private int[] changed = new int[16];
+    private int changedCount;
+
+    private int weight;
+    private int[] path;
+    private double bound = Double.POSITIVE_INFINITY;
+    private boolean finished;
+    private long generated, reopened;
+
+    /**
+     * The borders are read, not copied, and must not change while the
+     * search is used.
+     *
+     * @param weight heuristic weight of the first round, at least 1
+     */
+    public AnytimeSearch(int width, int height, BitSet borders, int start, int end, boolean diagonal, double weight) {
+        if (!(weight >= 1)) {
+            throw new IllegalArgumentException("weight must be at least 1");
+        }
+        this.width = width;
+        this.height = height;
+        this.borders = borders;
+        this.start = start;
+        this.end = end;
+        this.diagonal = diagonal;
+        this.weight = (int) Math.round(weight * WEIGHT_SCALE);
+
+        g = new int[width * height];
+        parents = new int[width * height];
+        Arrays.fill(g, UNREACHABLE);
+        open = new IndexedHeap(width * height);
+
+        g[start] = 0;
+        parents[start] = -1;
+        open.push(start, key(start));
+    }
+
+    /**
+     * Expands one cell, or finishes the round when nothing on the open list
+     * can lead to a cheaper path than the one to the end. A finished round
+     * keeps its path and starts the next one with a lower weight.
+     *
+     * @return true if this step finished a round
+     */
+    public boolean step() {
+        changedCount = 0;
+        if (finished) {
+            return false;
+        }
+        if (!open.isEmpty() && (open.peekKey() >>> 32) < (long) g[end] * WEIGHT_SCALE) {
+            expand(open.pop());
+            return false;
+        }
+        endRound();
+        return true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * The best path so far as cell ids from start to end, both included,
+     * null before the first round is over or if there is no path.
+     */
+    public int[] getPath() {
+        return path;
+    }
+
+    // The path costs at most this times the optimal cost, 1 once it is
+    // optimal and infinite before the first path
+    public double getBound() {
+        return bound;
+    }
+
+    // G cost of a cell, -1 when it has not been reached
+    public int getG(int cell) {
+        return g[cell] >= UNREACHABLE ? -1 : g[cell];
+    }
+
+    public boolean isOpen(int cell) {
+        return open.contains(cell);
+    }
+
+    // Whether a cell was expanded in any round
+    public boolean isExpanded(int cell) {
+        return expanded.get(cell);
+    }
+
+    public int getOpenCount() {
+        return open.size();
+    }
+
+    // Number of cells whose cost or list changed in the last step
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    // Cell i of those, in the order they changed
+    public int getChanged(int i) {
+        return changed[i];
+    }
+
+    // Cells put on the open list for the first time
+    public long getGenerated() {
+        return generated;
+    }
+
+    // Times a cell already reached was given a lower cost
+    public long getReopened() {
+        return reopened;
+    }
+
+    // Octile distance to the end cell
+    public int heuristic(int cell) {
+        int dx = Math.abs(cell % width - end % width);
+        int dy = Math.abs(cell / width - end / width);
+        return DIAGONAL_MOVE_COST * Math.min(dx, dy) + MOVE_COST * Math.abs(dx - dy);
+    }
+
+    // Lowers the costs of the neighbours of a cell. Neighbours expanded in
+    // this round are not opened again, they wait for the next round
+    private void expand(int cell) {
+        closed.set(cell);
+        expanded.set(cell);
+        addChanged(cell);
+        int x = cell % width;
+        int y = cell / width;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                int cost = cost(x, y, dx, dy);
+                if (cost == -1) {
+                    continue;
+                }
+                int neighbour = (y + dy) * width + x + dx;
+                int newG = g[cell] + cost;
+                if (newG >= g[neighbour]) {
+                    continue;
+                }
+                if (g[neighbour] == UNREACHABLE) {
+                    generated++;
+                } else {
+                    reopened++;
+                }
+                g[neighbour] = newG;
+                parents[neighbour] = cell;
+                addChanged(neighbour);
+                if (closed.get(neighbour)) {
+                    inconsistent.set(neighbour);
+                } else if (open.contains(neighbour)) {
+                    open.decreaseKey(neighbour, key(neighbour));
+                } else {
+                    open.push(neighbour, key(neighbour));
+                }
+            }
+        }
+    }
+
+    // Publishes the path of the round that just ended, then lowers the
+    // weight, opens the cells kept aside and orders the open list by the
+    // new weight
+    private void endRound() {
+        if (g[end] >= UNREACHABLE) {
+            // Every cell that can be reached was expanded
+            finished = true;
+            return;
+        }
+        path = walkBack();
+
+        // No path through an open or kept aside cell can cost less than its
+        // G + H, so the cheapest of those is a lower bound of the optimal cost
+        long lowest = Long.MAX_VALUE;
+        for (int i = 0; i < open.size(); i++) {
+            int cell = open.get(i);
+            lowest = Math.min(lowest, (long) g[cell] + heuristic(cell));
+        }
+        for (int cell = inconsistent.nextSetBit(0); cell >= 0; cell = inconsistent.nextSetBit(cell + 1)) {
+            lowest = Math.min(lowest, (long) g[cell] + heuristic(cell));
+        }
+        bound = Math.min((double) weight / WEIGHT_SCALE, lowest >= g[end] ? 1 : (double) g[end] / lowest);
+        if (bound <= 1) {
+            finished = true;
+            return;
+        }
+
+        weight = Math.max(weight - WEIGHT_STEP, WEIGHT_SCALE);
+        int[] cells = new int[open.size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = open.get(i);
+        }
+        open.clear();
+        for (int cell : cells) {
+            open.push(cell, key(cell));
+        }
+        for (int cell = inconsistent.nextSetBit(0); cell >= 0; cell = inconsistent.nextSetBit(cell + 1)) {
+            open.push(cell, key(cell));
+            addChanged(cell);
+        }
+        inconsistent.clear();
+        closed.clear();
+    }
+
+    private void addChanged(int cell) {
+        if (changedCount == changed.length) {
+            changed = Arrays.copyOf(changed, changedCount * 2);
+        }
+        changed[changedCount++] = cell;
+    }
+
+    // Follows the parents back from the end
+    private int[] walkBack() {
+        int length = 0;
+        for (int cell = end; cell != -1; cell = parents[cell]) {
+            length++;
+        }
+        int[] cells = new int[length];
+        for (int cell = end; cell != -1; cell = parents[cell]) {
+            cells[--length] = cell;
+        }
+        return cells;
+    }
+
+    // Cost of the step from (x, y) by (dx, dy), -1 if it is not allowed
+    private int cost(int x, int y, int dx, int dy) {
+        boolean diagonalStep = dx != 0 && dy != 0;
+        if ((dx == 0 && dy == 0) || (diagonalStep && !diagonal) || !walkable(x, y) || !walkable(x + dx, y + dy)
+                || !walkable(x + dx, y) || !walkable(x, y + dy)) {
+            return -1;
+        }
+        return diagonalStep ? DIAGONAL_MOVE_COST : MOVE_COST;
+    }
+
+    // Open list order, lowest G + weight * H first then lowest H
+    private long key(int cell) {
+        int h = heuristic(cell);
+        return IndexedHeap.key(g[cell] * WEIGHT_SCALE + weight * h, h);
+    }
+
+    private boolean walkable(int x, int y) {
+        return inGrid(x, y) && !borders.get(y * width + x);
+    }
+
+    private boolean inGrid(int x, int y) {
+        return x >= 0 & y >= 0 & x < width & y < height;
+    }
+}
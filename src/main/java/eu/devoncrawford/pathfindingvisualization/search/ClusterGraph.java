@@ -0,0 +1,567 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.search;
+
+import static eu.devoncrawford.pathfindingvisualization.APathfinding.DIAGONAL_MOVE_COST;
+import static eu.devoncrawford.pathfindingvisualization.APathfinding.MOVE_COST;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The abstract graph for hierarchical pathfinding (HPA*). The grid is cut into
+ * square clusters. Where two neighbouring clusters touch with free cells on
+ * both sides they get an entrance: one pair of abstract nodes in the middle
+ * of a short opening, or one at each end of a long one. The distances
+ * between the abstract nodes inside a cluster are cached the first time a
+ * query passes through it, and dropped again when a border there changes.
+ *
+ * A query first searches the abstract graph, then refines only the clusters
+ * on the chosen route into cells. Moves follow the diagonal setting it is
+ * created with, never cutting corners. Paths are close to, but not always,
+ * the shortest.
+ *
+ * @author Devon Crawford
+ */
+public class ClusterGraph {
+
+    // Openings of at least this many cells get an entrance at each end
+    private static final int LONG_ENTRANCE = 6;
+
+    private final int width, height, size, columns, rows;
+    private final boolean diagonal;
+    private final BitSet borders;
+
+    // Entrances on the east and south side of every cluster, as pairs of
+    // cells (inside, outside)
+    private final int[][] eastEntrances, southEntrances;
+
+    // Abstract nodes of every cluster, the cells across the entrances of
+    // each node and the distances between the nodes (-1 when unreachable).
+    // All three are null until needed
+    private final int[][] nodes;
+    private final int[][][] partners;
+    private final int[][] distances;
+
+    // Abstract nodes are numbered cluster * slots + index in the cluster,
+    // followed by the start and the end node
+    private final int slots, start, end;
+    private final int[] abstractG, abstractParent, abstractStamp;
+    private final IndexedHeap abstractOpen;
+    private int abstractSearch;
+
+    // Scratch space for searches inside one cluster
+    private final Scratch local;
+
+    private final ArrayList<Integer> expanded = new ArrayList<>();
+    private long generated;
+
+    /**
+     * Finds the entrances of every cluster. The borders are read, not
+     * copied, so every change to them has to be followed by
+     * {@link #update(int, int)}
+     */
+    public ClusterGraph(int width, int height, BitSet borders, int size, boolean diagonal) {
+        this.width = width;
+        this.height = height;
+        this.borders = borders;
+        this.size = size;
+        this.diagonal = diagonal;
+        columns = (width + size - 1) / size;
+        rows = (height + size - 1) / size;
+
+        eastEntrances = new int[columns * rows][];
+        southEntrances = new int[columns * rows][];
+        nodes = new int[columns * rows][];
+        partners = new int[columns * rows][][];
+        distances = new int[columns * rows][];
+
+        // A side has at most one entrance per two cells, each with up to
+        // two nodes
+        slots = 4 * size;
+        start = columns * rows * slots;
+        end = start + 1;
+        abstractG = new int[end + 1];
+        abstractParent = new int[end + 1];
+        abstractStamp = new int[end + 1];
+        abstractOpen = new IndexedHeap(end + 1);
+        local = new Scratch(size);
+
+        for (int c = 0; c < columns * rows; c++) {
+            eastEntrances[c] = findEntrances(c, true);
+            southEntrances[c] = findEntrances(c, false);
+        }
+    }
+
+    public boolean isDiagonal() {
+        return diagonal;
+    }
+
+    // Cells of the abstract nodes expanded by the last query
+    public ArrayList<Integer> getExpanded() {
+        return expanded;
+    }
+
+    // Abstract nodes and cells put on an open list by the last query
+    public long getGenerated() {
+        return generated;
+    }
+
+    /**
+     * Rebuilds what the border at (x, y) can change: the entrances on the
+     * sides of its cluster that the cell lies on, and drops the nodes and
+     * distances of its cluster and of the neighbours sharing those entrances.
+     */
+    public void update(int x, int y) {
+        int cx = x / size;
+        int cy = y / size;
+        int c = cy * columns + cx;
+        invalidate(c);
+
+        if (x % size == size - 1 && cx + 1 < columns) {
+            eastEntrances[c] = findEntrances(c, true);
+            invalidate(c + 1);
+        }
+        if (x % size == 0 && cx > 0) {
+            eastEntrances[c - 1] = findEntrances(c - 1, true);
+            invalidate(c - 1);
+        }
+        if (y % size == size - 1 && cy + 1 < rows) {
+            southEntrances[c] = findEntrances(c, false);
+            invalidate(c + columns);
+        }
+        if (y % size == 0 && cy > 0) {
+            southEntrances[c - columns] = findEntrances(c - columns, false);
+            invalidate(c - columns);
+        }
+    }
+
+    private void invalidate(int cluster) {
+        nodes[cluster] = null;
+        partners[cluster] = null;
+        distances[cluster] = null;
+    }
+
+    /**
+     * Finds a path between two cells, there is none if either of them is a
+     * border.
+     *
+     * @return the cell ids from start to end, both included, or null
+     */
+    public int[] findPath(int from, int to) {
+        expanded.clear();
+        generated = 0;
+        if (!walkable(from) || !walkable(to)) {
+            return null;
+        }
+        int startCluster = clusterOf(from);
+        int endCluster = clusterOf(to);
+
+        // Distances from the end to the abstract nodes of its cluster
+        int[] endNodes = nodesOf(endCluster);
+        int[] toEnd = new int[endNodes.length];
+        localSearch(to, -1, null, 0);
+        for (int i = 0; i < endNodes.length; i++) {
+            toEnd[i] = local.cost(toLocal(endNodes[i]));
+        }
+
+        abstractSearch++;
+        abstractOpen.clear();
+        abstractG[start] = 0;
+        abstractStamp[start] = abstractSearch;
+        abstractOpen.push(start, IndexedHeap.key(heuristic(from, to), 0));
+        generated++;
+
+        while (!abstractOpen.isEmpty()) {
+            int key = abstractOpen.pop();
+            int g = abstractG[key];
+            if (key == end) {
+                return refine(chain(from, to));
+            }
+
+            if (key == start) {
+                localSearch(from, -1, null, 0);
+                int[] startNodes = nodesOf(startCluster);
+                for (int i = 0; i < startNodes.length; i++) {
+                    int d = local.cost(toLocal(startNodes[i]));
+                    if (d != -1) {
+                        relax(startCluster * slots + i, g + d, key, to);
+                    }
+                }
+                if (startCluster == endCluster && local.cost(toLocal(to)) != -1) {
+                    relax(end, g + local.cost(toLocal(to)), key, to);
+                }
+                continue;
+            }
+
+            int cluster = key / slots;
+            int index = key % slots;
+            int[] clusterNodes = nodes[cluster];
+            int[] clusterDistances = distancesOf(cluster);
+            expanded.add(clusterNodes[index]);
+            for (int j = 0; j < clusterNodes.length; j++) {
+                int d = clusterDistances[index * clusterNodes.length + j];
+                if (j != index && d != -1) {
+                    relax(cluster * slots + j, g + d, key, to);
+                }
+            }
+            for (int partner : partners[cluster][index]) {
+                int partnerCluster = clusterOf(partner);
+                nodesOf(partnerCluster);
+                relax(partnerCluster * slots + indexOf(partnerCluster, partner), g + MOVE_COST, key, to);
+            }
+            if (cluster == endCluster && toEnd[index] != -1) {
+                relax(end, g + toEnd[index], key, to);
+            }
+        }
+        return null;
+    }
+
+    // Opens an abstract node or lowers its cost
+    private void relax(int key, int g, int from, int to) {
+        int h = key == end ? 0 : heuristic(cell(key), to);
+        if (abstractStamp[key] != abstractSearch) {
+            abstractStamp[key] = abstractSearch;
+            abstractG[key] = g;
+            abstractParent[key] = from;
+            abstractOpen.push(key, IndexedHeap.key(g + h, h));
+            generated++;
+        } else if (g < abstractG[key] && abstractOpen.contains(key)) {
+            abstractG[key] = g;
+            abstractParent[key] = from;
+            abstractOpen.decreaseKey(key, IndexedHeap.key(g + h, h));
+        }
+    }
+
+    // Cell of an abstract node other than the start and end
+    private int cell(int key) {
+        return nodes[key / slots][key % slots];
+    }
+
+    // The abstract path as cells, from start to end
+    private int[] chain(int from, int to) {
+        int length = 1;
+        for (int key = end; key != start; key = abstractParent[key]) {
+            length++;
+        }
+        int[] cells = new int[length];
+        cells[0] = from;
+        cells[length - 1] = to;
+        int i = length - 2;
+        for (int key = abstractParent[end]; key != start; key = abstractParent[key]) {
+            cells[i--] = cell(key);
+        }
+        return cells;
+    }
+
+    // Turns the abstract path into cells, searching only inside the
+    // clusters it passes through. Null if a part of it can not be walked,
+    // which the cached distances should never allow
+    private int[] refine(int[] abstractPath) {
+        ArrayList<Integer> cells = new ArrayList<>();
+        cells.add(abstractPath[0]);
+        for (int i = 1; i < abstractPath.length; i++) {
+            int from = abstractPath[i - 1];
+            int to = abstractPath[i];
+            if (from == to) {
+                continue;
+            }
+            if (clusterOf(from) != clusterOf(to)) {
+                // Entrance, the two cells are next to each other
+                cells.add(to);
+                continue;
+            }
+            localSearch(from, to, null, 0);
+            if (local.cost(toLocal(to)) == -1) {
+                return null;
+            }
+            int mark = cells.size();
+            for (int id = toLocal(to); id != toLocal(from); id = local.parent[id]) {
+                cells.add(fromLocal(id, clusterOf(from)));
+            }
+            // The walk back added the cells in reverse
+            for (int a = mark, b = cells.size() - 1; a < b; a++, b--) {
+                cells.set(a, cells.set(b, cells.get(a)));
+            }
+        }
+        int[] path = new int[cells.size()];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = cells.get(i);
+        }
+        return path;
+    }
+
+    // Entrances between a cluster and its east or south neighbour
+    private int[] findEntrances(int cluster, boolean east) {
+        int cx = cluster % columns;
+        int cy = cluster / columns;
+        if (east ? cx + 1 >= columns : cy + 1 >= rows) {
+            return new int[0];
+        }
+        int length = east ? Math.min(size, height - cy * size) : Math.min(size, width - cx * size);
+        int[] pairs = new int[length * 4];
+        int count = 0;
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean open = i < length && walkable(entranceCell(cluster, east, i, false))
+                    && walkable(entranceCell(cluster, east, i, true));
+            if (open && runStart == -1) {
+                runStart = i;
+            } else if (!open && runStart != -1) {
+                int runEnd = i - 1;
+                if (runEnd - runStart + 1 < LONG_ENTRANCE) {
+                    int middle = (runStart + runEnd) / 2;
+                    pairs[count++] = entranceCell(cluster, east, middle, false);
+                    pairs[count++] = entranceCell(cluster, east, middle, true);
+                } else {
+                    pairs[count++] = entranceCell(cluster, east, runStart, false);
+                    pairs[count++] = entranceCell(cluster, east, runStart, true);
+                    pairs[count++] = entranceCell(cluster, east, runEnd, false);
+                    pairs[count++] = entranceCell(cluster, east, runEnd, true);
+                }
+                runStart = -1;
+            }
+        }
+        return Arrays.copyOf(pairs, count);
+    }
+
+    // The i-th cell along the east or south edge of a cluster, or the cell
+    // across it
+    private int entranceCell(int cluster, boolean east, int i, boolean outside) {
+        int x0 = cluster % columns * size;
+        int y0 = cluster / columns * size;
+        if (east) {
+            return (y0 + i) * width + x0 + size - 1 + (outside ? 1 : 0);
+        }
+        return (y0 + size - 1 + (outside ? 1 : 0)) * width + x0 + i;
+    }
+
+    // Abstract nodes of a cluster, collected from the entrances on its four
+    // sides on first use
+    private int[] nodesOf(int cluster) {
+        if (nodes[cluster] != null) {
+            return nodes[cluster];
+        }
+        ArrayList<Integer> cells = new ArrayList<>();
+        ArrayList<ArrayList<Integer>> across = new ArrayList<>();
+        int cx = cluster % columns;
+        int cy = cluster / columns;
+
+        addEntrances(eastEntrances[cluster], 0, cells, across);
+        addEntrances(southEntrances[cluster], 0, cells, across);
+        if (cx > 0) {
+            addEntrances(eastEntrances[cluster - 1], 1, cells, across);
+        }
+        if (cy > 0) {
+            addEntrances(southEntrances[cluster - columns], 1, cells, across);
+        }
+
+        int count = cells.size();
+        int[] clusterNodes = new int[count];
+        partners[cluster] = new int[count][];
+        for (int i = 0; i < count; i++) {
+            clusterNodes[i] = cells.get(i);
+            partners[cluster][i] = new int[across.get(i).size()];
+            for (int j = 0; j < partners[cluster][i].length; j++) {
+                partners[cluster][i][j] = across.get(i).get(j);
+            }
+        }
+        nodes[cluster] = clusterNodes;
+        return clusterNodes;
+    }
+
+    // Distances between the abstract nodes of a cluster, searched on first
+    // use
+    private int[] distancesOf(int cluster) {
+        if (distances[cluster] != null) {
+            return distances[cluster];
+        }
+        int[] clusterNodes = nodesOf(cluster);
+        int count = clusterNodes.length;
+        int[] clusterDistances = new int[count * count];
+        // The distances are kept for later queries, so the cells opened to
+        // find them are not counted as generated by this one
+        long queryGenerated = generated;
+        for (int i = 0; i < count; i++) {
+            // Moves are symmetric, so the nodes before i are already known
+            localSearch(clusterNodes[i], -1, clusterNodes, i + 1);
+            for (int j = i + 1; j < count; j++) {
+                int d = local.cost(toLocal(clusterNodes[j]));
+                clusterDistances[i * count + j] = d;
+                clusterDistances[j * count + i] = d;
+            }
+        }
+        generated = queryGenerated;
+        distances[cluster] = clusterDistances;
+        return clusterDistances;
+    }
+
+    // Adds the cells of entrance pairs on one side (0 inside, 1 outside)
+    private static void addEntrances(int[] pairs, int side, ArrayList<Integer> cells,
+            ArrayList<ArrayList<Integer>> across) {
+        for (int i = 0; i < pairs.length; i += 2) {
+            int cell = pairs[i + side];
+            int index = cells.indexOf(cell);
+            if (index == -1) {
+                index = cells.size();
+                cells.add(cell);
+                across.add(new ArrayList<>());
+            }
+            across.get(index).add(pairs[i + 1 - side]);
+        }
+    }
+
+    /**
+     * A* (or Dijkstra when to is -1) from a cell, never leaving its cluster.
+     * Dijkstra stops early once the cells from targets[firstTarget] on are all
+     * settled, if targets is given. Costs and parents stay in the scratch
+     * space until its next search.
+     */
+    private void localSearch(int from, int to, int[] targets, int firstTarget) {
+        int cluster = clusterOf(from);
+        int x0 = cluster % columns * size;
+        int y0 = cluster / columns * size;
+        int x1 = Math.min(x0 + size, width) - 1;
+        int y1 = Math.min(y0 + size, height) - 1;
+        local.search++;
+        local.open.clear();
+        int remaining = -1;
+        if (targets != null) {
+            remaining = targets.length - firstTarget;
+            if (remaining == 0) {
+                return;
+            }
+            for (int i = firstTarget; i < targets.length; i++) {
+                local.target[toLocal(targets[i])] = local.search;
+            }
+        }
+
+        int first = toLocal(from);
+        local.g[first] = 0;
+        local.parent[first] = -1;
+        local.stamp[first] = local.search;
+        local.open.push(first, 0);
+        generated++;
+
+        while (!local.open.isEmpty()) {
+            int current = local.open.pop();
+            if (to != -1 && current == toLocal(to)) {
+                return;
+            }
+            if (local.target[current] == local.search && --remaining == 0) {
+                return;
+            }
+            int x = x0 + current % size;
+            int y = y0 + current / size;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int nx = x + dx;
+                    int ny = y + dy;
+                    if ((dx == 0 & dy == 0) || nx < x0 || ny < y0 || nx > x1 || ny > y1
+                            || !walkable(ny * width + nx)) {
+                        continue;
+                    }
+                    boolean diagonalStep = dx != 0 && dy != 0;
+                    if (diagonalStep && (!diagonal || !walkable(y * width + nx) || !walkable(ny * width + x))) {
+                        continue;
+                    }
+                    int next = (ny - y0) * size + nx - x0;
+                    int g = local.g[current] + (diagonalStep ? DIAGONAL_MOVE_COST : MOVE_COST);
+                    int h = to == -1 ? 0 : heuristic(ny * width + nx, to);
+                    if (local.stamp[next] != local.search) {
+                        local.stamp[next] = local.search;
+                        local.g[next] = g;
+                        local.parent[next] = current;
+                        local.open.push(next, g + h);
+                        generated++;
+                    } else if (g < local.g[next] && local.open.contains(next)) {
+                        local.g[next] = g;
+                        local.parent[next] = current;
+                        local.open.decreaseKey(next, g + h);
+                    }
+                }
+            }
+        }
+    }
+
+    private int toLocal(int cell) {
+        return (cell / width % size) * size + cell % width % size;
+    }
+
+    private int fromLocal(int local, int cluster) {
+        int x = cluster % columns * size + local % size;
+        int y = cluster / columns * size + local / size;
+        return y * width + x;
+    }
+
+    private int clusterOf(int cell) {
+        return cell / width / size * columns + cell % width / size;
+    }
+
+    private int indexOf(int cluster, int cell) {
+        int[] clusterNodes = nodes[cluster];
+        for (int i = 0; i < clusterNodes.length; i++) {
+            if (clusterNodes[i] == cell) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Octile distance between two cells, Manhattan without diagonal moves
+    private int heuristic(int a, int b) {
+        int dx = Math.abs(a % width - b % width);
+        int dy = Math.abs(a / width - b / width);
+        if (!diagonal) {
+            return MOVE_COST * (dx + dy);
+        }
+        return DIAGONAL_MOVE_COST * Math.min(dx, dy) + MOVE_COST * Math.abs(dx - dy);
+    }
+
+    private boolean walkable(int cell) {
+        return !borders.get(cell);
+    }
+
+    // Costs and parents of a search inside one cluster, by local cell id.
+    // Entries count only when stamped with the current search
+    private static class Scratch {
+        final int[] g, parent, stamp, target;
+        final IndexedHeap open;
+        int search;
+
+        Scratch(int size) {
+            g = new int[size * size];
+            parent = new int[size * size];
+            stamp = new int[size * size];
+            target = new int[size * size];
+            open = new IndexedHeap(size * size);
+        }
+
+        // Cost to a local cell, -1 if the last search did not reach it
+        int cost(int id) {
+            return stamp[id] == search ? g[id] : -1;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.search;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * A bounded queue of longs for exactly one producer thread and one consumer
+ * thread, without locks. Each side only advances its own counter, and only
+ * publishes it after the slots it covers were written or read, so an event
+ * is never seen half written. The producer keeps its last view of the
+ * consumer's counter and only reads it again when the queue looks full.
+ *
+ * @author Devon Crawford
+ */
+public class EventQueue {
+
+    private final long[] buffer;
+    private final int mask;
+
+    // Number of events ever offered and ever taken
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    // The producer's last look at head
+    private long headCache;
+
+    // The capacity is rounded up to a power of two
+    public EventQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        buffer = new long[size];
+        mask = size - 1;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Adds an event, producer thread only.
+     *
+     * @return false if the queue is full
+     */
+    public boolean offer(long event) {
+        long t = tail.get();
+        if (t - headCache == buffer.length) {
+            headCache = head.get();
+            if (t - headCache == buffer.length) {
+                return false;
+            }
+        }
+        buffer[(int) t & mask] = event;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Hands every event offered so far to consumer, oldest first. Consumer
+     * thread only.
+     *
+     * @return the number of events taken
+     */
+    public int drain(LongConsumer consumer) {
+        long h = head.get();
+        long t = tail.get();
+        for (long i = h; i < t; i++) {
+            consumer.accept(buffer[(int) i & mask]);
+        }
+        head.lazySet(t);
+        return (int) (t - h);
+    }
+
+    // Drops everything offered so far, consumer thread only
+    public void clear() {
+        head.lazySet(tail.get());
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.search;
+
+import static eu.devoncrawford.pathfindingvisualization.APathfinding.DIAGONAL_MOVE_COST;
+import static eu.devoncrawford.pathfindingvisualization.APathfinding.MOVE_COST;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Lifelong Planning A* (LPA*) between a fixed start and end cell. The costs
+ * of the last search are kept, and after border edits only the cells whose
+ * cost the edits changed are searched again. This is D* Lite without the
+ * moving start, which the visualisation does not have.
+ *
+ * Every cell has a G cost and a right hand side (RHS), the cost it would get
+ * from its best neighbour. Cells where the two differ are inconsistent and
+ * sit on the open list until the search makes them consistent again. Moves
+ * follow the diagonal setting it is created with, never cutting corners.
+ *
+ * @author Devon Crawford
+ */
+public class IncrementalSearch {
+
+    // Cost of cells that cannot be reached, small enough to add a step to
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    private final int width, height, start, end;
+    private final boolean diagonal;
+    private final BitSet borders;
+
+    private final int[] g, rhs;
+    private final IndexedHeap open;
+
+    // Cells made consistent again by the last search
+    private final BitSet repaired = new BitSet();
+    // Cells put on the open list since the last search ended, and how many
+    // the last search and the border updates before it put there
+    private long generated, lastGenerated;
+
+    /**
+     * The borders are read, not copied, so every change to them has to be
+     * followed by {@link #update(int)}
+     */
+    public IncrementalSearch(int width, int height, BitSet borders, int start, int end, boolean diagonal) {
+        this.width = width;
+        this.height = height;
+        this.borders = borders;
+        this.start = start;
+        this.end = end;
+        this.diagonal = diagonal;
+
+        g = new int[width * height];
+        rhs = new int[width * height];
+        Arrays.fill(g, UNREACHABLE);
+        Arrays.fill(rhs, UNREACHABLE);
+        open = new IndexedHeap(width * height);
+
+        rhs[start] = 0;
+        open.push(start, key(start));
+    }
+
+    // Whether this search can be carried on for another query
+    public boolean matches(int start, int end, boolean diagonal) {
+        return this.start == start && this.end == end && this.diagonal == diagonal;
+    }
+
+    /**
+     * Brings the costs up to date and returns the path.
+     *
+     * @return the cell ids from start to end, both included, or null
+     */
+    public int[] findPath() {
+        repaired.clear();
+        while (!open.isEmpty() && (open.peekKey() < key(end) || rhs[end] != g[end])) {
+            int cell = open.pop();
+            repaired.set(cell);
+            if (g[cell] > rhs[cell]) {
+                // Cheaper than before, settle it
+                g[cell] = rhs[cell];
+                updateNeighbours(cell);
+            } else {
+                // Dearer than before, drop it and let the neighbours tell
+                // its new cost
+                g[cell] = UNREACHABLE;
+                updateCell(cell);
+                updateNeighbours(cell);
+            }
+        }
+        lastGenerated = generated;
+        generated = 0;
+        return g[end] >= UNREACHABLE ? null : walkBack();
+    }
+
+    /**
+     * Called after the border at cell was added or removed. Marks the cells
+     * whose best neighbour may have changed, which are the cell itself and
+     * its 8 neighbours, as a diagonal step past its corners counts too.
+     */
+    public void update(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                if (inGrid(x + dx, y + dy)) {
+                    updateCell((y + dy) * width + x + dx);
+                }
+            }
+        }
+    }
+
+    // G cost of a cell, -1 when it cannot be reached
+    public int getG(int cell) {
+        return g[cell] >= UNREACHABLE ? -1 : g[cell];
+    }
+
+    public BitSet getRepaired() {
+        return repaired;
+    }
+
+    // Cells put on the open list by the last search and the border
+    // updates before it, not counting those that were on it already
+    public long getGenerated() {
+        return lastGenerated;
+    }
+
+    // Octile distance to the end cell
+    public int heuristic(int cell) {
+        int dx = Math.abs(cell % width - end % width);
+        int dy = Math.abs(cell / width - end / width);
+        return DIAGONAL_MOVE_COST * Math.min(dx, dy) + MOVE_COST * Math.abs(dx - dy);
+    }
+
+    // Recomputes the RHS of a cell and puts it on the open list if it is
+    // inconsistent
+    private void updateCell(int cell) {
+        if (cell != start) {
+            int best = UNREACHABLE;
+            if (!borders.get(cell)) {
+                int x = cell % width;
+                int y = cell / width;
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        int cost = cost(x, y, dx, dy);
+                        if (cost != -1) {
+                            best = Math.min(best, g[(y + dy) * width + x + dx] + cost);
+                        }
+                    }
+                }
+            }
+            rhs[cell] = Math.min(best, UNREACHABLE);
+        }
+        boolean wasOpen = open.contains(cell);
+        open.remove(cell);
+        if (g[cell] != rhs[cell]) {
+            open.push(cell, key(cell));
+            if (!wasOpen) {
+                generated++;
+            }
+        }
+    }
+
+    private void updateNeighbours(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                if (cost(x, y, dx, dy) != -1) {
+                    updateCell((y + dy) * width + x + dx);
+                }
+            }
+        }
+    }
+
+    // Follows the cheapest neighbours back from the end
+    private int[] walkBack() {
+        int length = 1;
+        for (int cell = end; cell != start; cell = best(cell)) {
+            length++;
+        }
+        int[] path = new int[length];
+        int i = length - 1;
+        for (int cell = end; cell != start; cell = best(cell)) {
+            path[i--] = cell;
+        }
+        path[0] = start;
+        return path;
+    }
+
+    // The neighbour a cell gets its cost from
+    private int best(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        int best = -1;
+        int bestCost = UNREACHABLE;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                int cost = cost(x, y, dx, dy);
+                int neighbour = (y + dy) * width + x + dx;
+                if (cost != -1 && g[neighbour] + cost < bestCost) {
+                    bestCost = g[neighbour] + cost;
+                    best = neighbour;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Cost of the step from (x, y) by (dx, dy), -1 if it is not allowed
+    private int cost(int x, int y, int dx, int dy) {
+        boolean diagonalStep = dx != 0 && dy != 0;
+        if ((dx == 0 && dy == 0) || (diagonalStep && !diagonal) || !walkable(x, y) || !walkable(x + dx, y + dy)
+                || !walkable(x + dx, y) || !walkable(x, y + dy)) {
+            return -1;
+        }
+        return diagonalStep ? DIAGONAL_MOVE_COST : MOVE_COST;
+    }
+
+    // Open list order, lowest min(G, RHS) + H first then lowest min(G, RHS)
+    private long key(int cell) {
+        int cost = Math.min(g[cell], rhs[cell]);
+        return IndexedHeap.key(cost + heuristic(cell), cost);
+    }
+
+    private boolean walkable(int x, int y) {
+        return inGrid(x, y) && !borders.get(y * width + x);
+    }
+
+    private boolean inGrid(int x, int y) {
+        return x >= 0 & y >= 0 & x < width & y < height;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.search;
+
+import java.util.Arrays;
+
+/**
+ * A binary min heap of cell ids (0 to capacity - 1) used as the open list.
+ * The heap slot of every id is tracked, so contains, push, pop and
+ * decreaseKey are all O(1) or O(log n) instead of scanning a list. Keys are
+ * longs so a search can pack a tie breaker in the low bits, see
+ * {@link #key(int, int)}
+ *
+ * @author Devon Crawford
+ */
+public class IndexedHeap {
+
+    private int[] heap;
+    private long[] keys;
+    private int[] position;
+    private int size;
+
+    public IndexedHeap(int capacity) {
+        heap = new int[16];
+        keys = new long[16];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    // Packs a primary and secondary key, both must be positive
+    public static long key(int primary, int secondary) {
+        return ((long) primary << 32) | secondary;
+    }
+
+    public int capacity() {
+        return position.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int id) {
+        return position[id] != -1;
+    }
+
+    // Id stored in heap slot i, for walking every open cell
+    public int get(int i) {
+        return heap[i];
+    }
+
+    public long getKey(int id) {
+        return keys[position[id]];
+    }
+
+    public int peek() {
+        return heap[0];
+    }
+
+    public long peekKey() {
+        return keys[0];
+    }
+
+    public void push(int id, long key) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        heap[size] = id;
+        keys[size] = key;
+        position[id] = size;
+        siftUp(size++);
+    }
+
+    // Removes and returns the id with the lowest key
+    public int pop() {
+        int id = heap[0];
+        removeAt(0);
+        return id;
+    }
+
+    public void decreaseKey(int id, long key) {
+        int i = position[id];
+        keys[i] = key;
+        siftUp(i);
+    }
+
+    // Changes the key of an id in either direction
+    public void update(int id, long key) {
+        int i = position[id];
+        long old = keys[i];
+        keys[i] = key;
+        if (key < old) {
+            siftUp(i);
+        } else {
+            siftDown(i);
+        }
+    }
+
+    public void remove(int id) {
+        if (position[id] != -1) {
+            removeAt(position[id]);
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void removeAt(int i) {
+        position[heap[i]] = -1;
+        size--;
+        if (i == size) {
+            return;
+        }
+        heap[i] = heap[size];
+        keys[i] = keys[size];
+        position[heap[i]] = i;
+        if (i > 0 && keys[i] < keys[(i - 1) >>> 1]) {
+            siftUp(i);
+        } else {
+            siftDown(i);
+        }
+    }
+
+    private void siftUp(int i) {
+        int id = heap[i];
+        long key = keys[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            move(parent, i);
+            i = parent;
+        }
+        heap[i] = id;
+        keys[i] = key;
+        position[id] = i;
+    }
+
+    private void siftDown(int i) {
+        int id = heap[i];
+        long key = keys[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            move(child, i);
+            i = child;
+        }
+        heap[i] = id;
+        keys[i] = key;
+        position[id] = i;
+    }
+
+    // Moves the entry in slot "from" into slot "to"
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        keys[to] = keys[from];
+        position[heap[to]] = to;
+    }
+}
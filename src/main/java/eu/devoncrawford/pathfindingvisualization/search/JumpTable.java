@@ -0,0 +1,245 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.search;
+
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed jump distances for JPS+. For every cell and each of the 8
+ * directions the table holds how far a jump goes: a positive n means the
+ * next jump point is n cells away, zero or a negative -n means there is no
+ * jump point and n cells can be walked before a border or the grid edge.
+ * The rules are the ones of Jump Point Search without corner cutting.
+ *
+ * Straight distances are built per row and column, diagonal distances per
+ * diagonal line, both in parallel. A border edit only recomputes the rows
+ * and columns around it and the diagonal cells that depend on them.
+ *
+ * @author Devon Crawford
+ */
+public class JumpTable {
+
+    // Directions clockwise from north, straight ones are even
+    public static final int[] DX = {0, 1, 1, 1, 0, -1, -1, -1};
+    public static final int[] DY = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    private final int width, height;
+    private final BitSet borders;
+    private final int[] distances;
+
+    /**
+     * Builds the table for a grid. The borders are read, not copied, so
+     * every change to them has to be followed by {@link #update(int, int)}
+     */
+    public JumpTable(int width, int height, BitSet borders) {
+        this.width = width;
+        this.height = height;
+        this.borders = borders;
+        distances = new int[width * height * 8];
+
+        // Straight distances only depend on their own row or column
+        IntStream.range(0, height).parallel().forEach(y -> {
+            buildRow(y, 2, null);
+            buildRow(y, 6, null);
+        });
+        IntStream.range(0, width).parallel().forEach(x -> {
+            buildColumn(x, 0, null);
+            buildColumn(x, 4, null);
+        });
+
+        // Diagonal distances depend on the straight ones and on the next cell
+        // along the same diagonal, so every diagonal line is walked from its
+        // far end
+        for (int dir = 1; dir < 8; dir += 2) {
+            final int d = dir;
+            IntStream.of(lineEnds(d)).parallel().forEach(end -> {
+                for (int c = end; c != -1; c = step(c, d + 4)) {
+                    distances[c * 8 + d] = diagonal(c, d);
+                }
+            });
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // Jump distance from a cell in a direction, see the class comment
+    public int get(int cell, int dir) {
+        return distances[cell * 8 + dir];
+    }
+
+    /**
+     * Repairs the table after the border at (x, y) was added or removed. Only
+     * rows y - 1 to y + 1, columns x - 1 to x + 1 and the diagonal cells
+     * whose jumps run through a changed cell are recomputed.
+     */
+    public void update(int x, int y) {
+        BitSet changed = new BitSet();
+        for (int row = Math.max(y - 1, 0); row <= Math.min(y + 1, height - 1); row++) {
+            buildRow(row, 2, changed);
+            buildRow(row, 6, changed);
+        }
+        for (int column = Math.max(x - 1, 0); column <= Math.min(x + 1, width - 1); column++) {
+            buildColumn(column, 0, changed);
+            buildColumn(column, 4, changed);
+        }
+
+        for (int d = 1; d < 8; d += 2) {
+            // Diagonal moves past the edited cell, or onto it
+            repair(x, y, d);
+            repair(x - DX[d], y, d);
+            repair(x, y - DY[d], d);
+            repair(x - DX[d], y - DY[d], d);
+
+            // Diagonal jumps that look at a changed straight distance
+            for (int c = changed.nextSetBit(0); c >= 0; c = changed.nextSetBit(c + 1)) {
+                repair(c % width - DX[d], c / width - DY[d], d);
+            }
+        }
+    }
+
+    // Straight distances of a row going east (2) or west (6), starting
+    // from the far end. Cells whose distance changes are added to changed
+    private void buildRow(int y, int dir, BitSet changed) {
+        int dx = DX[dir];
+        int start = dx > 0 ? width - 1 : 0;
+        for (int x = start; x >= 0 && x < width; x -= dx) {
+            store(y * width + x, dir, straight(x, y, dx, 0, dir), changed);
+        }
+    }
+
+    // Straight distances of a column going north (0) or south (4)
+    private void buildColumn(int x, int dir, BitSet changed) {
+        int dy = DY[dir];
+        int start = dy > 0 ? height - 1 : 0;
+        for (int y = start; y >= 0 && y < height; y -= dy) {
+            store(y * width + x, dir, straight(x, y, 0, dy, dir), changed);
+        }
+    }
+
+    private void store(int cell, int dir, int value, BitSet changed) {
+        if (distances[cell * 8 + dir] != value) {
+            distances[cell * 8 + dir] = value;
+            if (changed != null) {
+                changed.set(cell);
+            }
+        }
+    }
+
+    // Straight distance from (x, y), using the distance of the next cell
+    private int straight(int x, int y, int dx, int dy, int dir) {
+        int nx = x + dx;
+        int ny = y + dy;
+        if (!walkable(x, y) || !walkable(nx, ny)) {
+            return 0;
+        }
+        if (forced(nx, ny, dx, dy)) {
+            return 1;
+        }
+        return extend(distances[(ny * width + nx) * 8 + dir]);
+    }
+
+    // Diagonal distance of a cell, using the distance of the next cell
+    private int diagonal(int cell, int dir) {
+        int x = cell % width;
+        int y = cell / width;
+        int dx = DX[dir];
+        int dy = DY[dir];
+        if (!walkable(x, y) || !walkable(x + dx, y + dy) || !walkable(x + dx, y) || !walkable(x, y + dy)) {
+            return 0;
+        }
+        int next = (y + dy) * width + x + dx;
+        if (distances[next * 8 + (dx > 0 ? 2 : 6)] > 0 || distances[next * 8 + (dy > 0 ? 4 : 0)] > 0) {
+            return 1;
+        }
+        return extend(distances[next * 8 + dir]);
+    }
+
+    // Recomputes diagonal distances from (x, y) backwards along the
+    // diagonal until a cell keeps its old value
+    private void repair(int x, int y, int dir) {
+        if (x < 0 | y < 0 | x >= width | y >= height) {
+            return;
+        }
+        for (int c = y * width + x; c != -1; c = step(c, dir + 4)) {
+            int value = diagonal(c, dir);
+            if (distances[c * 8 + dir] == value) {
+                return;
+            }
+            distances[c * 8 + dir] = value;
+        }
+    }
+
+    // One cell further than the distance of the next cell
+    private static int extend(int next) {
+        return next > 0 ? next + 1 : next - 1;
+    }
+
+    // Whether moving straight into (x, y) gives a forced neighbour
+    private boolean forced(int x, int y, int dx, int dy) {
+        if (dx != 0) {
+            return walkable(x, y - 1) && !walkable(x - dx, y - 1)
+                    || walkable(x, y + 1) && !walkable(x - dx, y + 1);
+        }
+        return walkable(x - 1, y) && !walkable(x - 1, y - dy)
+                || walkable(x + 1, y) && !walkable(x + 1, y - dy);
+    }
+
+    // Cell one step in a direction, -1 outside of the grid
+    private int step(int cell, int dir) {
+        int x = cell % width + DX[dir & 7];
+        int y = cell / width + DY[dir & 7];
+        if (x < 0 | y < 0 | x >= width | y >= height) {
+            return -1;
+        }
+        return y * width + x;
+    }
+
+    // The last cell of every diagonal line in a direction
+    private int[] lineEnds(int dir) {
+        int edgeX = DX[dir] > 0 ? width - 1 : 0;
+        int edgeY = DY[dir] > 0 ? height - 1 : 0;
+        int[] ends = new int[width + height - 1];
+        int i = 0;
+        for (int y = 0; y < height; y++) {
+            ends[i++] = y * width + edgeX;
+        }
+        for (int x = 0; x < width; x++) {
+            if (x != edgeX) {
+                ends[i++] = edgeY * width + x;
+            }
+        }
+        return ends;
+    }
+
+    private boolean walkable(int x, int y) {
+        return x >= 0 & y >= 0 & x < width & y < height && !borders.get(y * width + x);
+    }
+}
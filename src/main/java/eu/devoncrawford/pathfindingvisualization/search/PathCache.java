@@ -0,0 +1,237 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.search;
+
+import static eu.devoncrawford.pathfindingvisualization.APathfinding.DIAGONAL_MOVE_COST;
+import static eu.devoncrawford.pathfindingvisualization.APathfinding.MOVE_COST;
+
+import eu.devoncrawford.pathfindingvisualization.entity.SearchResult;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of search results, least recently used out first. Entries
+ * are keyed by start cell, end cell and search mode, and only count for the
+ * map version they were stored at.
+ *
+ * Without selective invalidation every border edit makes all entries stale.
+ * With it, an edit only drops the entries it can affect: an added border
+ * those whose path runs through it, a removed border those that could get
+ * shorter through the freed cell or one of its neighbours, judged by the
+ * octile distance. The rest are carried over to the new version.
+ *
+ * @author Devon Crawford
+ */
+public class PathCache {
+
+    private final int capacity;
+    private final boolean selective;
+    private final LinkedHashMap<Key, CachedPath> entries;
+    private long hits, misses, evictions, invalidations;
+
+    public PathCache(int capacity, boolean selective) {
+        this.capacity = capacity;
+        this.selective = selective;
+        // Access order, so the eldest entry is the least recently used
+        entries = new LinkedHashMap<Key, CachedPath>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedPath> eldest) {
+                if (size() > PathCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the result stored for this query at this map version, or null
+     */
+    public SearchResult get(int start, int end, int mode, int version) {
+        Key key = new Key(start, end, mode);
+        CachedPath entry = entries.get(key);
+        if (entry == null || entry.version != version) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.result;
+    }
+
+    public void put(int start, int end, int mode, int version, SearchResult result) {
+        entries.put(new Key(start, end, mode), new CachedPath(result, version));
+    }
+
+    /**
+     * Called after the border at cell was added or removed, which moved the
+     * map to version. Only does something with selective invalidation.
+     */
+    public void bordersChanged(int cell, boolean added, int version) {
+        if (!selective) {
+            return;
+        }
+        Iterator<Map.Entry<Key, CachedPath>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, CachedPath> next = it.next();
+            CachedPath entry = next.getValue();
+            if (entry.version != version - 1) {
+                // Already stale
+                continue;
+            }
+            if (added ? blocks(entry.result, cell) : mayShorten(next.getKey(), entry.result, cell)) {
+                it.remove();
+                invalidations++;
+            } else {
+                entry.version = version;
+            }
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isSelective() {
+        return selective;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    // Entries dropped to stay within the capacity
+    public long getEvictions() {
+        return evictions;
+    }
+
+    // Entries dropped by selective invalidation
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    // A new border breaks a path running through it or cutting its corner,
+    // a missing path stays missing
+    private static boolean blocks(SearchResult result, int cell) {
+        if (!result.isFound()) {
+            return false;
+        }
+        int width = result.getWidth();
+        int[] path = result.getPath();
+        for (int i = 0; i < path.length; i++) {
+            if (path[i] == cell) {
+                return true;
+            }
+            if (i > 0 && result.getX(i) != result.getX(i - 1) && result.getY(i) != result.getY(i - 1)) {
+                // Diagonal step, the two cells beside it must stay free
+                if (cell == result.getY(i - 1) * width + result.getX(i)
+                        || cell == result.getY(i) * width + result.getX(i - 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // A freed cell can only help a path through it or through a diagonal
+    // step past its corner, which runs between two of its neighbours. So
+    // one of those cells has to allow a cheaper path than the stored one.
+    // A missing path may appear through any cell
+    private static boolean mayShorten(Key key, SearchResult result, int cell) {
+        if (!result.isFound()) {
+            return true;
+        }
+        int width = result.getWidth();
+        int x = cell % width;
+        int y = cell / width;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                if (x + dx < 0 || x + dx >= width || y + dy < 0) {
+                    continue;
+                }
+                int via = (y + dy) * width + x + dx;
+                if (octile(key.start, via, width) + octile(via, key.end, width) < result.getCost()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int octile(int a, int b, int width) {
+        int dx = Math.abs(a % width - b % width);
+        int dy = Math.abs(a / width - b / width);
+        return DIAGONAL_MOVE_COST * Math.min(dx, dy) + MOVE_COST * Math.abs(dx - dy);
+    }
+
+    private static class Key {
+        final int start, end, mode;
+
+        Key(int start, int end, int mode) {
+            this.start = start;
+            this.end = end;
+            this.mode = mode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return start == other.start && end == other.end && mode == other.mode;
+        }
+
+        @Override
+        public int hashCode() {
+            return (start * 31 + end) * 31 + mode;
+        }
+    }
+
+    private static class CachedPath {
+        final SearchResult result;
+        int version;
+
+        CachedPath(SearchResult result, int version) {
+            this.result = result;
+            this.version = version;
+        }
+    }
+}
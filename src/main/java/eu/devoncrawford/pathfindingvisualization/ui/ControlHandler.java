@@ -24,6 +24,7 @@
 package eu.devoncrawford.pathfindingvisualization.ui;
 
 import eu.devoncrawford.pathfindingvisualization.Frame;
+import eu.devoncrawford.pathfindingvisualization.search.Algorithm;
 
 import java.awt.Color;
 import java.awt.Dimension;
@@ -32,6 +33,7 @@ import java.util.ArrayList;
 
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JSlider;
 import javax.swing.event.ChangeEvent;
@@ -55,6 +57,7 @@ public class ControlHandler {
     private final JLabel openC;
     private final JLabel closedC;
     private final JLabel pathC;
+    private final JLabel metricsC;
     private final JLabel noPathT;
     
     private final JCheckBox showStepsCheck;
@@ -62,8 +65,11 @@ public class ControlHandler {
     private final JCheckBox trigCheck;
     
     private JSlider speed;
+
+    private final JComboBox<Algorithm> algorithm;
     
     private final JButton run;
+    private final JButton export;
     private final ArrayList<JLabel> labels;
     private final ArrayList<JCheckBox> checks;
     private final ArrayList<JSlider> sliders;
@@ -125,6 +131,11 @@ public class ControlHandler {
         pathC.setFont(Style.numbers);
         pathC.setVisible(true);
 
+        metricsC = new JLabel("");
+        metricsC.setName("metricsC");
+        metricsC.setFont(Style.smallNumbers);
+        metricsC.setVisible(true);
+
         noPathT = new JLabel("NO PATH");
         noPathT.setName("noPathT");
         noPathT.setForeground(Color.white);
@@ -141,6 +152,7 @@ public class ControlHandler {
         labels.add(closedC);
         labels.add(pathT);
         labels.add(pathC);
+        labels.add(metricsC);
         labels.add(noPathT);
 
         // Set up JCheckBoxes
@@ -197,8 +209,24 @@ public class ControlHandler {
         run.setMargin(new Insets(0, 0, 0, 0));
         run.setVisible(true);
 
+        export = new JButton();
+        export.setText("export");
+        export.setName("export");
+        export.setFocusable(false);
+        export.addActionListener(frame);
+        export.setMargin(new Insets(0, 0, 0, 0));
+        export.setEnabled(false);
+        export.setVisible(true);
+
         // Add JButtons to list
         buttons.add(run);
+        buttons.add(export);
+
+        // Set up algorithm selection
+        algorithm = new JComboBox<>(Algorithm.values());
+        algorithm.setName("algorithm");
+        algorithm.setFocusable(false);
+        algorithm.setVisible(true);
     }
 
     // Gets a specific JLabel by name
@@ -241,6 +269,11 @@ public class ControlHandler {
         return null;
     }
 
+    // Gets the algorithm picked in the drop down
+    public Algorithm getAlgorithm() {
+        return (Algorithm) algorithm.getSelectedItem();
+    }
+
     public void noPathTBounds() {
         noPathT.setBounds((int) ((frame.getWidth() / 2) - (npD.getWidth() / 2)),
                 (int) ((frame.getHeight() / 2) - 70),
@@ -257,6 +290,7 @@ public class ControlHandler {
         closedC.setBounds(300, frame.getHeight() - 76, 60, 20);
         pathT.setBounds(254, frame.getHeight() - 60, 60, 20);
         pathC.setBounds(300, frame.getHeight() - 60, 60, 20);
+        metricsC.setBounds(336, frame.getHeight() - 62, 80, 20);
         Dimension size = modeText.getPreferredSize();
         modeText.setBounds(20, frame.getHeight() - 39, size.width, size.height);
 
@@ -270,6 +304,10 @@ public class ControlHandler {
 
         // Set button bounds
         run.setBounds(116, frame.getHeight() - 88, 52, 22);
+        export.setBounds(336, frame.getHeight() - 40, 52, 22);
+
+        // Set drop down bounds
+        algorithm.setBounds(336, frame.getHeight() - 88, 80, 22);
     }
 
     // Sets text of JLabels to lightText
@@ -287,6 +325,7 @@ public class ControlHandler {
         closedC.setForeground(Style.lightText);
         pathT.setForeground(Style.lightText);
         pathC.setForeground(Style.lightText);
+        metricsC.setForeground(Style.lightText);
     }
 
     // Sets text of JLabels to darkText
@@ -304,6 +343,7 @@ public class ControlHandler {
         closedT.setForeground(Style.darkText);
         pathT.setForeground(Style.darkText);
         pathC.setForeground(Style.darkText);
+        metricsC.setForeground(Style.darkText);
     }
 
     // Adds all components to frame
@@ -319,9 +359,12 @@ public class ControlHandler {
         frame.add(closedC);
         frame.add(pathT);
         frame.add(pathC);
+        frame.add(metricsC);
+        frame.add(export);
         frame.add(speed);
         frame.add(speedT);
         frame.add(speedC);
+        frame.add(algorithm);
     }
 
 }
@@ -0,0 +1,136 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.ui;
+
+import eu.devoncrawford.pathfindingvisualization.APathfinding;
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * Keeps the parts of the map that rarely change, the grid lines and the
+ * borders, as transparent images the size of the panel. The grid is only
+ * drawn again when the panel or the cell size changes, it is one cell larger
+ * than the panel so panning only shifts it. The borders are drawn over a copy
+ * of it, again when the map or the view moves, so painting takes a single
+ * image. A single border edit just redraws its own cell.
+ *
+ * @author Devon Crawford
+ */
+public class LayerCache {
+
+    private BufferedImage grid, walls;
+    private int width, height, size;
+    private int offsetX, offsetY;
+    private int wallVersion;
+
+    /**
+     * Draws the grid and the borders for a panel of width x height with cells
+     * of size pixels, and cell (0, 0) at (offsetX, offsetY) which must not
+     * be positive. Rebuilds whatever is out of date first.
+     */
+    public void paint(Graphics g, APathfinding pathfinding, int width, int height, int size,
+            int offsetX, int offsetY) {
+        if (grid == null || width != this.width || height != this.height || size != this.size) {
+            this.width = width;
+            this.height = height;
+            this.size = size;
+            grid = drawGrid(image(g, width + size, height + size));
+            walls = null;
+        }
+        if (offsetX != this.offsetX || offsetY != this.offsetY) {
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            walls = null;
+        }
+        if (walls == null || wallVersion != pathfinding.getMapVersion()) {
+            walls = drawWalls(image(g, width, height), pathfinding);
+            wallVersion = pathfinding.getMapVersion();
+        }
+        g.drawImage(walls, 0, 0, null);
+    }
+
+    /**
+     * Call after editing the border at (x, y). If that edit is the only
+     * change since the borders were drawn, only its cell is drawn again.
+     */
+    public void cellChanged(APathfinding pathfinding, int x, int y) {
+        if (walls == null || pathfinding.getMapVersion() != wallVersion + 1) {
+            return;
+        }
+        Graphics2D g = walls.createGraphics();
+        if (pathfinding.searchBorder(x, y) != -1) {
+            g.setColor(Color.black);
+        } else {
+            g.setComposite(AlphaComposite.Clear);
+        }
+        g.fillRect(x * size + offsetX + 1, y * size + offsetY + 1, size - 1, size - 1);
+        g.dispose();
+        wallVersion = pathfinding.getMapVersion();
+    }
+
+    // A transparent image the screen can draw quickly, kept in video
+    // memory where possible
+    private BufferedImage image(Graphics screen, int width, int height) {
+        return ((Graphics2D) screen).getDeviceConfiguration().createCompatibleImage(Math.max(width, 1),
+                Math.max(height, 1), Transparency.TRANSLUCENT);
+    }
+
+    private BufferedImage drawGrid(BufferedImage image) {
+        Graphics g = image.getGraphics();
+        g.setColor(Color.lightGray);
+        for (int j = 0; j < image.getHeight(); j += size) {
+            g.drawLine(0, j, image.getWidth(), j);
+        }
+        for (int i = 0; i < image.getWidth(); i += size) {
+            g.drawLine(i, 0, i, image.getHeight());
+        }
+        g.dispose();
+        return image;
+    }
+
+    // Only the borders in view are drawn, one row of cells at a time
+    private BufferedImage drawWalls(BufferedImage image, APathfinding pathfinding) {
+        Graphics g = image.getGraphics();
+        g.drawImage(grid, offsetX % size, offsetY % size, null);
+        g.setColor(Color.black);
+        int firstColumn = -offsetX / size;
+        int firstRow = -offsetY / size;
+        int columns = Math.min((width - offsetX + size - 1) / size, pathfinding.getWidth());
+        int rows = Math.min((height - offsetY + size - 1) / size, pathfinding.getHeight());
+        int mapWidth = pathfinding.getWidth();
+        for (int y = firstRow; y < rows; y++) {
+            int rowEnd = y * mapWidth + columns;
+            for (int id = pathfinding.nextBorder(y * mapWidth + firstColumn); id != -1 && id < rowEnd;
+                    id = pathfinding.nextBorder(id + 1)) {
+                g.fillRect(id % mapWidth * size + offsetX + 1, y * size + offsetY + 1, size - 1, size - 1);
+            }
+        }
+        g.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.ui;
+
+import eu.devoncrawford.pathfindingvisualization.entity.CellState;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Draws the search from a SearchView. When many squares are in view it does
+ * so without a fillRect per square: the colour of each one is written
+ * straight into the int pixels of an image, one pixel per square, which is
+ * then scaled onto the screen with a single drawImage. The image is opaque,
+ * empty squares take the background colour, so the blit is a plain scaled
+ * copy without blending. That blit costs about the same for any number of
+ * squares, so with only a few large ones in view filling them one by one is
+ * cheaper and is used instead. Open and closed nodes are green and red,
+ * those of the search from the end in bidirectional mode yellow and purple,
+ * the path blue.
+ *
+ * @author Devon Crawford
+ */
+public class SearchRaster {
+
+    // Colours by CellState ordinal, as ARGB for the image. Empty squares
+    // are left out
+    private static final Color[] COLOURS = new Color[CellState.values().length];
+    private static final int[] PIXELS = new int[COLOURS.length];
+
+    static {
+        COLOURS[CellState.BORDER.ordinal()] = Color.black;
+        COLOURS[CellState.OPEN.ordinal()] = Style.greenHighlight;
+        COLOURS[CellState.CLOSED.ordinal()] = Style.redHighlight;
+        COLOURS[CellState.BACK_OPEN.ordinal()] = Style.yellowHighlight;
+        COLOURS[CellState.BACK_CLOSED.ordinal()] = Style.purpleHighlight;
+        COLOURS[CellState.PATH.ordinal()] = Style.blueHighlight;
+        for (int i = 1; i < COLOURS.length; i++) {
+            PIXELS[i] = COLOURS[i].getRGB();
+        }
+    }
+
+    // Squares in view from which the image is used
+    private static final int IMAGE_SQUARES = 16384;
+
+    private BufferedImage image;
+    private int[] pixels;
+
+    /**
+     * Draws the squares of a view level inside clip, given in map pixels
+     * with squares of size pixels, over the background colour. On level 0
+     * borders are left out, as the grid lines and borders drawn over it
+     * there cover the edges of the squares, or the squares are filled
+     * inside the grid lines.
+     *
+     * The squares are visited in blocks 8 wide, a block that holds nothing
+     * to draw is skipped after a single look at the level above.
+     */
+    public void paint(Graphics g, SearchView view, int level, Rectangle clip, int size, Color background) {
+        int firstColumn = Math.max(clip.x / size, 0);
+        int firstRow = Math.max(clip.y / size, 0);
+        int lastColumn = Math.min((clip.x + clip.width) / size, view.getWidth(level) - 1);
+        int lastRow = Math.min((clip.y + clip.height) / size, view.getHeight(level) - 1);
+        int columns = lastColumn - firstColumn + 1;
+        int rows = lastRow - firstRow + 1;
+        if (columns <= 0 || rows <= 0) {
+            return;
+        }
+        boolean direct = columns * rows >= IMAGE_SQUARES;
+        int stride = 0;
+        if (direct) {
+            stride = fit(columns, rows);
+            Arrays.fill(pixels, 0, rows * stride, background.getRGB());
+        }
+        // Squares are filled inside the grid lines on level 0
+        int inset = level == 0 ? 1 : 0;
+
+        int coarse = Math.min(level + 3, view.getLevels() - 1);
+        int shift = coarse - level;
+        int lowest = level == 0 ? CellState.BORDER.ordinal() : CellState.EMPTY.ordinal();
+        for (int by = firstRow >> shift; by <= lastRow >> shift; by++) {
+            for (int bx = firstColumn >> shift; bx <= lastColumn >> shift; bx++) {
+                if (view.get(coarse, bx, by).ordinal() <= lowest) {
+                    continue;
+                }
+                int rowEnd = Math.min(((by + 1) << shift) - 1, lastRow);
+                int columnEnd = Math.min(((bx + 1) << shift) - 1, lastColumn);
+                for (int y = Math.max(by << shift, firstRow); y <= rowEnd; y++) {
+                    int row = (y - firstRow) * stride - firstColumn;
+                    for (int x = Math.max(bx << shift, firstColumn); x <= columnEnd; x++) {
+                        int state = view.get(level, x, y).ordinal();
+                        if (state <= lowest) {
+                            continue;
+                        }
+                        if (direct) {
+                            pixels[row + x] = PIXELS[state];
+                        } else {
+                            g.setColor(COLOURS[state]);
+                            g.fillRect(x * size + inset, y * size + inset, size - inset, size - inset);
+                        }
+                    }
+                }
+            }
+        }
+        if (direct) {
+            g.drawImage(image, firstColumn * size, firstRow * size, (lastColumn + 1) * size, (lastRow + 1) * size,
+                    0, 0, columns, rows, null);
+        }
+    }
+
+    // Makes the image at least columns x rows, returns its width
+    private int fit(int columns, int rows) {
+        if (image == null || image.getWidth() < columns || image.getHeight() < rows) {
+            int w = image == null ? columns : Math.max(columns, image.getWidth());
+            int h = image == null ? rows : Math.max(rows, image.getHeight());
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+        return image.getWidth();
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.ui;
+
+import eu.devoncrawford.pathfindingvisualization.APathfinding;
+import eu.devoncrawford.pathfindingvisualization.entity.CellState;
+import java.util.Arrays;
+
+/**
+ * What the graphics show of a search, one state per cell. While a search runs
+ * on its worker thread the panel paints from this copy, kept up to date from
+ * the worker's events, instead of reading the search as it changes. Also
+ * counts the cells in each state for the control panel.
+ *
+ * Above the cells it keeps a pyramid of levels, each a quarter of the one
+ * below: a block of 2^level x 2^level cells holds the highest state in it by
+ * CellState order, so a path or closed cell stands out over borders and
+ * empty ground. The graphics use it to skip whole blocks where nothing was
+ * searched, and draw a level instead of single cells when zoomed far out.
+ *
+ * @author Devon Crawford
+ */
+public class SearchView {
+
+    private static final CellState[] STATES = CellState.values();
+
+    // levels[0] holds the cells
+    private byte[][] levels = {new byte[0]};
+    private int width, height;
+    private final int[] counts = new int[STATES.length];
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // Number of levels, the last is a single block over the whole grid
+    public int getLevels() {
+        return levels.length;
+    }
+
+    // Blocks across and down at a level
+    public int getWidth(int level) {
+        return blocks(width, level);
+    }
+
+    public int getHeight(int level) {
+        return blocks(height, level);
+    }
+
+    // Empties the view and sizes it to a width x height grid
+    public void resize(int width, int height) {
+        if (width != this.width || height != this.height || levels[0].length != width * height) {
+            this.width = width;
+            this.height = height;
+            int count = 1;
+            while (blocks(width, count - 1) > 1 || blocks(height, count - 1) > 1) {
+                count++;
+            }
+            levels = new byte[count][];
+            for (int level = 0; level < count; level++) {
+                levels[level] = new byte[blocks(width, level) * blocks(height, level)];
+            }
+        }
+        clear();
+    }
+
+    public void clear() {
+        for (byte[] level : levels) {
+            Arrays.fill(level, (byte) CellState.EMPTY.ordinal());
+        }
+        Arrays.fill(counts, 0);
+        counts[CellState.EMPTY.ordinal()] = levels[0].length;
+    }
+
+    public CellState get(int x, int y) {
+        return STATES[levels[0][y * width + x]];
+    }
+
+    // Highest state in block (x, y) of a level
+    public CellState get(int level, int x, int y) {
+        return STATES[levels[level][y * blocks(width, level) + x]];
+    }
+
+    /**
+     * Sets the state of a cell by id (y * width + x).
+     *
+     * @return true if that changed what the cell shows
+     */
+    public boolean set(int id, CellState state) {
+        int old = levels[0][id];
+        if (old == state.ordinal()) {
+            return false;
+        }
+        counts[old]--;
+        counts[state.ordinal()]++;
+        levels[0][id] = (byte) state.ordinal();
+
+        // Updates the blocks above until one stays the same
+        int x = id % width;
+        int y = id / width;
+        for (int level = 1; level < levels.length; level++) {
+            x >>= 1;
+            y >>= 1;
+            int top = highest(level - 1, x * 2, y * 2);
+            int block = y * blocks(width, level) + x;
+            if (levels[level][block] == top) {
+                break;
+            }
+            levels[level][block] = (byte) top;
+        }
+        return true;
+    }
+
+    public int count(CellState state) {
+        return counts[state.ordinal()];
+    }
+
+    // Empties the view and takes the borders of pathfinding
+    public void loadBorders(APathfinding pathfinding) {
+        resize(pathfinding.getWidth(), pathfinding.getHeight());
+        for (int id = pathfinding.nextBorder(0); id != -1; id = pathfinding.nextBorder(id + 1)) {
+            put(id, CellState.BORDER);
+        }
+        buildLevels();
+    }
+
+    // Copies every cell from a search that is not running on another thread
+    public void reload(APathfinding pathfinding) {
+        resize(pathfinding.getWidth(), pathfinding.getHeight());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                put(y * width + x, pathfinding.getCellState(x, y));
+            }
+        }
+        buildLevels();
+    }
+
+    // Sets a cell without updating the levels above, for filling the view
+    private void put(int id, CellState state) {
+        counts[levels[0][id]]--;
+        counts[state.ordinal()]++;
+        levels[0][id] = (byte) state.ordinal();
+    }
+
+    // Builds every level from the one below
+    private void buildLevels() {
+        for (int level = 1; level < levels.length; level++) {
+            int w = blocks(width, level);
+            int h = blocks(height, level);
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    levels[level][y * w + x] = (byte) highest(level - 1, x * 2, y * 2);
+                }
+            }
+        }
+    }
+
+    // Highest of the (up to) four blocks from (x, y) on a level
+    private int highest(int level, int x, int y) {
+        byte[] below = levels[level];
+        int w = blocks(width, level);
+        int h = blocks(height, level);
+        int top = below[y * w + x];
+        if (x + 1 < w) {
+            top = Math.max(top, below[y * w + x + 1]);
+        }
+        if (y + 1 < h) {
+            top = Math.max(top, below[(y + 1) * w + x]);
+            if (x + 1 < w) {
+                top = Math.max(top, below[(y + 1) * w + x + 1]);
+            }
+        }
+        return top;
+    }
+
+    private static int blocks(int cells, int level) {
+        return (cells + (1 << level) - 1) >> level;
+    }
+}
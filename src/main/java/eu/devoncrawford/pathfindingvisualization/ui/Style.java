@@ -39,6 +39,8 @@ public @interface Style {
     Color greenHighlight = new Color(132, 255, 138);
     Color redHighlight = new Color(253, 90, 90);
     Color blueHighlight = new Color(32, 233, 255);
+    Color yellowHighlight = new Color(255, 236, 110);
+    Color purpleHighlight = new Color(196, 120, 255);
     Color btnPanel = new Color(120, 120, 120, 80);
     Color darkText = new Color(48, 48, 48);
     Color lightText = new Color(232, 232, 232);
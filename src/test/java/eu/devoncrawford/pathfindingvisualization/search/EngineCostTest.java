@@ -0,0 +1,188 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.search;
+
+import static eu.devoncrawford.pathfindingvisualization.APathfinding.DIAGONAL_MOVE_COST;
+import static eu.devoncrawford.pathfindingvisualization.APathfinding.MOVE_COST;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import eu.devoncrawford.pathfindingvisualization.APathfinding;
+import eu.devoncrawford.pathfindingvisualization.entity.Node;
+import eu.devoncrawford.pathfindingvisualization.entity.SearchResult;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Path costs of every search engine against a plain Dijkstra search, on
+ * random grids and after border edits.
+ *
+ * @author Devon Crawford
+ */
+public class EngineCostTest {
+
+    private static final int SIZE = 24;
+
+    @Test
+    public void diagonalCostsMatchDijkstra() {
+        compareWithDijkstra(true);
+    }
+
+    @Test
+    public void orthogonalCostsMatchDijkstra() {
+        compareWithDijkstra(false);
+    }
+
+    // A start on the end returns before any engine is set up, which must
+    // not leave the open list of the ARA* search before it behind
+    @Test
+    public void nextQueryDropsAnytimeSearch() {
+        APathfinding pathfinding = new APathfinding(SIZE, SIZE);
+        pathfinding.setAlgorithm(Algorithm.ARA);
+        for (int y = 0; y < SIZE - 4; y++) {
+            pathfinding.addBorder(new Node(SIZE / 2, y));
+        }
+        pathfinding.solve(0, 0, SIZE - 1, 0);
+
+        pathfinding.setAlgorithm(Algorithm.ASTAR);
+        pathfinding.solve(3, 3, 3, 3);
+        assertEquals(0, pathfinding.getOpenCount());
+        pathfinding.solve(3, 3, SIZE / 2, 0);
+        assertEquals(0, pathfinding.getOpenCount());
+    }
+
+    // Every engine keeps its own APathfinding through the border edits, so
+    // the engines that keep state between queries (JPS+, HPA* and LPA*)
+    // are checked after updates too
+    private void compareWithDijkstra(boolean diagonal) {
+        Random random = new Random(diagonal ? 1 : 2);
+        Algorithm[] algorithms = Algorithm.values();
+        for (int grid = 0; grid < 3; grid++) {
+            boolean[] walls = new boolean[SIZE * SIZE];
+            APathfinding[] engines = new APathfinding[algorithms.length];
+            for (int a = 0; a < algorithms.length; a++) {
+                engines[a] = new APathfinding(SIZE, SIZE);
+                engines[a].setAlgorithm(algorithms[a]);
+                engines[a].setDiagonal(diagonal);
+            }
+            for (int cell = 0; cell < walls.length; cell++) {
+                if (random.nextInt(100) < 25) {
+                    toggle(walls, engines, cell);
+                }
+            }
+
+            for (int round = 0; round < 5; round++) {
+                for (int edit = 0; edit < 6; edit++) {
+                    toggle(walls, engines, random.nextInt(walls.length));
+                }
+                for (int query = 0; query < 5; query++) {
+                    int start = random.nextInt(walls.length);
+                    int end = random.nextInt(walls.length);
+                    for (int a = 0; a < algorithms.length; a++) {
+                        check(algorithms[a], engines[a], walls, start, end, diagonal);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void check(Algorithm algorithm, APathfinding engine, boolean[] walls, int start, int end,
+            boolean diagonal) {
+        // Plain A* may cut corners, and jump point search always moves
+        // diagonally
+        if (algorithm == Algorithm.ASTAR) {
+            return;
+        }
+        boolean jumps = algorithm == Algorithm.JPS || algorithm == Algorithm.JPS_PLUS;
+        int optimal = dijkstra(walls, start, end, diagonal || jumps);
+        SearchResult result = engine.solve(start % SIZE, start / SIZE, end % SIZE, end / SIZE);
+
+        String query = algorithm + " from " + start + " to " + end;
+        assertEquals(query, optimal != -1, result.isFound());
+        if (algorithm == Algorithm.HPA) {
+            // HPA* paths run through cluster entrances and are close to
+            // optimal, not always optimal
+            assertTrue(query, result.getCost() >= optimal);
+        } else {
+            assertEquals(query, optimal, result.getCost());
+        }
+    }
+
+    private static void toggle(boolean[] walls, APathfinding[] engines, int cell) {
+        walls[cell] = !walls[cell];
+        for (APathfinding engine : engines) {
+            if (walls[cell]) {
+                engine.addBorder(new Node(cell % SIZE, cell / SIZE));
+            } else {
+                engine.removeBorder(new Node(cell % SIZE, cell / SIZE));
+            }
+        }
+    }
+
+    // Cost of the cheapest path without cutting corners, -1 if there is none
+    private static int dijkstra(boolean[] walls, int start, int end, boolean diagonal) {
+        if (walls[start] || walls[end]) {
+            return -1;
+        }
+        int[] cost = new int[walls.length];
+        Arrays.fill(cost, Integer.MAX_VALUE);
+        cost[start] = 0;
+        PriorityQueue<long[]> open = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        open.add(new long[] {0, start});
+        while (!open.isEmpty()) {
+            long[] next = open.poll();
+            int cell = (int) next[1];
+            if (next[0] > cost[cell]) {
+                continue;
+            }
+            if (cell == end) {
+                return cost[cell];
+            }
+            int x = cell % SIZE;
+            int y = cell / SIZE;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    boolean diagonalStep = dx != 0 && dy != 0;
+                    if ((dx == 0 && dy == 0) || (diagonalStep && !diagonal) || !walkable(walls, x + dx, y + dy)
+                            || !walkable(walls, x + dx, y) || !walkable(walls, x, y + dy)) {
+                        continue;
+                    }
+                    int neighbour = (y + dy) * SIZE + x + dx;
+                    int newCost = cost[cell] + (diagonalStep ? DIAGONAL_MOVE_COST : MOVE_COST);
+                    if (newCost < cost[neighbour]) {
+                        cost[neighbour] = newCost;
+                        open.add(new long[] {newCost, neighbour});
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean walkable(boolean[] walls, int x, int y) {
+        return x >= 0 && y >= 0 && x < SIZE && y < SIZE && !walls[y * SIZE + x];
+    }
+}
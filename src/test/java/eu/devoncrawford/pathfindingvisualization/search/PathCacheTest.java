@@ -0,0 +1,67 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2018 Devon Crawford.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package eu.devoncrawford.pathfindingvisualization.search;
+
+import static org.junit.Assert.assertEquals;
+
+import eu.devoncrawford.pathfindingvisualization.APathfinding;
+import eu.devoncrawford.pathfindingvisualization.entity.Node;
+import org.junit.Test;
+
+/**
+ * Selective invalidation of the path cache after border edits.
+ *
+ * @author Devon Crawford
+ */
+public class PathCacheTest {
+
+    // Freeing (2, 1) opens the diagonal from (1, 1) to (2, 2) past its
+    // corner. The shorter path never enters the freed cell, and a path
+    // through it would cost as much as the stored one
+    @Test
+    public void removedBorderDropsPathsShortenedPastItsCorner() {
+        APathfinding pathfinding = new APathfinding(5, 5);
+        pathfinding.setAlgorithm(Algorithm.BIDIRECTIONAL);
+        pathfinding.setPathCache(new PathCache(16, true));
+        pathfinding.addBorder(new Node(2, 1));
+        assertEquals(48, pathfinding.solve(0, 0, 3, 3).getCost());
+
+        pathfinding.removeBorder(new Node(2, 1));
+        assertEquals(42, pathfinding.solve(0, 0, 3, 3).getCost());
+    }
+
+    @Test
+    public void removedBorderKeepsPathsItCannotShorten() {
+        APathfinding pathfinding = new APathfinding(10, 10);
+        pathfinding.setAlgorithm(Algorithm.BIDIRECTIONAL);
+        PathCache cache = new PathCache(16, true);
+        pathfinding.setPathCache(cache);
+        pathfinding.addBorder(new Node(8, 8));
+        pathfinding.solve(0, 0, 3, 0);
+
+        pathfinding.removeBorder(new Node(8, 8));
+        pathfinding.solve(0, 0, 3, 0);
+        assertEquals(1, cache.getHits());
+    }
+}